@@ -5,41 +5,152 @@ import controller.viewhandler.CLIAdapter;
 import controller.viewhandler.GUIAdapter;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import model.IModel;
+import java.nio.file.Paths;
 import model.Model;
+import model.ResultStore;
+import model.RowBands;
+import model.Storage;
 
 /**
  * Represents our applications main method containing class.
  */
 public class App {
 
-  private static IModel model;
+  private static final long MEGABYTE = 1024 * 1024;
 
   /**
-   * This is the main method.
+   * This is the main method. The options are parsed first, and if one has an invalid value, a
+   * message is printed and the application does not start.
    *
    * @param args cli args
    */
   public static void main(String[] args) {
-    model = new Model();
-    Controller controller = initializeController(args);
-    controller.run();
+    Model model;
+    String mode = null;
+    String file = null;
+    try {
+      long cacheBudget = 0;
+      long resultLimit = 1024;
+      long compressAfter = -1;
+      boolean lazy = false;
+      String results = null;
+      for (int i = 0; i < args.length; i++) {
+        switch (args[i]) {
+          case "-cache-budget":
+            // memory budget of the image cache in megabytes.
+            cacheBudget = parseNumber(args, ++i, 1, Long.MAX_VALUE / MEGABYTE);
+            break;
+          case "-result-limit":
+            // size limit of the result store in megabytes.
+            resultLimit = parseNumber(args, ++i, 1, Long.MAX_VALUE / MEGABYTE);
+            break;
+          case "-results":
+            // directory to keep command results in across runs.
+            results = parseValue(args, ++i);
+            break;
+          case "-threads":
+            // number of threads processing the rows of large images.
+            RowBands.setParallelism((int) parseNumber(args, ++i, 1, Short.MAX_VALUE));
+            break;
+          case "-compress-after":
+            // seconds an image must go unused before it is compressed in memory.
+            compressAfter = parseNumber(args, ++i, 0, Long.MAX_VALUE / 1000);
+            break;
+          case "-lazy":
+            // defer commands until their results are read.
+            lazy = true;
+            break;
+          case "-scratch":
+            // directory for the scratch files of memory-mapped images.
+            Storage.setScratchDirectory(Paths.get(parseValue(args, ++i)));
+            break;
+          case "-file":
+            // script to run; the first of -file and -text selects the mode.
+            String path = parseValue(args, ++i);
+            if (mode == null) {
+              mode = "-file";
+              file = path;
+            }
+            break;
+          case "-text":
+            // interactive mode.
+            mode = (mode == null) ? "-text" : mode;
+            break;
+          default:
+            // not an option, ignored.
+        }
+      }
+      model = (cacheBudget > 0) ? new Model(cacheBudget * MEGABYTE) : new Model();
+      model.setLazy(lazy);
+      if (compressAfter >= 0) {
+        model.setCompressionDelay(compressAfter * 1000);
+      }
+      if (results != null) {
+        model.setResultStore(new ResultStore(Paths.get(results), resultLimit * MEGABYTE));
+      }
+    } catch (IllegalArgumentException e) {
+      System.out.println(e.getMessage());
+      return;
+    }
+    Controller controller = initializeController(model, mode, file);
+    if (controller != null) {
+      controller.run();
+    }
   }
 
-  private static Controller initializeController(String[] args) {
-    for (int i = 0; i < args.length; i++) {
-      if (args[i].equals("-file") && i + 1 < args.length) {
-        String filePath = args[i + 1];
-        // If a file path is specified, use it as input
-        System.out.println("Loading file: " + filePath);
-        FileInputStream fileInputStream = createFileInputStream(filePath);
-        // initiating controller for script.
-        return new Controller(model, new CLIAdapter(fileInputStream, System.out));
-      }
-      if (args[i].equals("-text")) {
-        // initiating controller for interactive mode.
-        return new Controller(model, new CLIAdapter(System.in, System.out));
+  /**
+   * Gets the value of an option.
+   *
+   * @param args  the command line arguments.
+   * @param index the index of the value, after the option.
+   * @return the value.
+   * @throws IllegalArgumentException if the option has no value.
+   */
+  private static String parseValue(String[] args, int index) {
+    if (index >= args.length) {
+      throw new IllegalArgumentException("Missing value for option " + args[index - 1] + ".");
+    }
+    return args[index];
+  }
+
+  /**
+   * Gets the value of an option as a number within a range.
+   *
+   * @param args  the command line arguments.
+   * @param index the index of the value, after the option.
+   * @param min   the smallest valid value.
+   * @param max   the largest valid value.
+   * @return the value.
+   * @throws IllegalArgumentException if the option has no value or it is not a number in range.
+   */
+  private static long parseNumber(String[] args, int index, long min, long max) {
+    String value = parseValue(args, index);
+    try {
+      long number = Long.parseLong(value);
+      if (number >= min && number <= max) {
+        return number;
       }
+    } catch (NumberFormatException e) {
+      // reported below.
+    }
+    throw new IllegalArgumentException("Invalid value for option " + args[index - 1] + ": "
+                                       + value + ", expected a number from " + min + " to "
+                                       + max + ".");
+  }
+
+  private static Controller initializeController(Model model, String mode, String file) {
+    if ("-file".equals(mode)) {
+      // If a file path is specified, use it as input
+      System.out.println("Loading file: " + file);
+      FileInputStream fileInputStream = createFileInputStream(file);
+      // initiating controller for script.
+      return (fileInputStream == null)
+             ? null
+             : new Controller(model, new CLIAdapter(fileInputStream, System.out));
+    }
+    if ("-text".equals(mode)) {
+      // initiating controller for interactive mode.
+      return new Controller(model, new CLIAdapter(System.in, System.out));
     }
     // initiating controller for GUIImpl.
     return new Controller(model, new GUIAdapter());
@@ -54,4 +165,3 @@ public class App {
     }
   }
 }
-
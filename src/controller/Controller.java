@@ -2,10 +2,13 @@ package controller;
 
 import controller.viewhandler.ViewAdapter;
 import java.io.File;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import model.IModel;
 import model.ModelReceiver;
+import model.Storage;
 import utils.arguments.ArgumentWrapper;
 import utils.arguments.MandatedArgWrapper;
 import utils.arguments.Signature;
@@ -67,6 +70,12 @@ public class Controller implements Features {
     vHandler.notifyExecutionOnSuccess();
   }
 
+  @Override
+  public void loadImage(File file, String alias, Storage storage) {
+    ioHandler.load(file, alias, storage);
+    vHandler.notifyExecutionOnSuccess();
+  }
+
   @Override
   public void saveImage(File file, String alias) {
     ioHandler.save(alias, file);
@@ -83,6 +92,35 @@ public class Controller implements Features {
     }
   }
 
+  @Override
+  public Set<String> getPointOperations() {
+    return model.getPointOperations();
+  }
+
+  @Override
+  public boolean invokeFused(List<String> commands, List<ArgumentWrapper> args,
+                             Set<String> materialized) {
+    try {
+      model.executeFused(commands, args, materialized);
+      return true;
+    } catch (IllegalArgumentException | UnsupportedOperationException
+             | NoSuchElementException e) {
+      // Executed one by one, the commands report their own errors.
+      return false;
+    }
+  }
+
+  @Override
+  public void releaseImage(String alias) {
+    // Not in the cache if the command writing it failed, and kept if the user pinned it.
+    model.releaseIfUnpinned(alias);
+  }
+
+  @Override
+  public String getCacheStats() {
+    return model.getCacheStats().toString();
+  }
+
   @Override
   public void exitApplication() {
     exit = true;
@@ -1,8 +1,10 @@
 package controller;
 
 import java.io.File;
+import java.util.List;
 import java.util.Set;
 import model.ModelSharer;
+import model.Storage;
 import utils.arguments.ArgumentWrapper;
 import utils.arguments.MandatedArgWrapper;
 
@@ -42,6 +44,16 @@ public interface Features extends ModelSharer {
    */
   void loadImage(File file, String alias);
 
+  /**
+   * Loads the given image like {@link #loadImage(File, String)}, keeping its pixels in the given
+   * storage.
+   *
+   * @param file    the file from which the image will be loaded.
+   * @param alias   a string alias used to refer to the loaded image.
+   * @param storage the storage to keep the image in.
+   */
+  void loadImage(File file, String alias, Storage storage);
+
   /**
    * Saves the image associated with the given alias to the specified file path.
    *
@@ -59,6 +71,42 @@ public interface Features extends ModelSharer {
    */
   void invokeCommand(String command, ArgumentWrapper args);
 
+  /**
+   * Gets the names of the commands that transform every pixel on its own, so a chain of them can
+   * be invoked as one pass with {@link #invokeFused(List, List, Set)}.
+   *
+   * @return the names of the point operations.
+   */
+  Set<String> getPointOperations();
+
+  /**
+   * Invokes a chain of point operations, each reading the result of the one before, as one pass,
+   * without notifying the view. Only the aliases in {@code materialized} get an image.
+   *
+   * @param commands     the names of the commands.
+   * @param args         the arguments of each command.
+   * @param materialized the aliases written by the chain that are used later.
+   * @return true if the chain ran, false if it could not be fused or failed and nothing was
+   *         executed, so the commands should be invoked one by one.
+   */
+  boolean invokeFused(List<String> commands, List<ArgumentWrapper> args, Set<String> materialized);
+
+  /**
+   * Releases an image or histogram from the model to free its memory, without notifying the view.
+   * Releasing an alias that does not exist or is pinned does nothing.
+   *
+   * @param alias the alias to release.
+   */
+  void releaseImage(String alias);
+
+  /**
+   * Describes the entries of the image cache and its counters: how much memory each alias holds,
+   * the total, hits, misses and evictions.
+   *
+   * @return a report of the cache for the user.
+   */
+  String getCacheStats();
+
   /**
    * Exits the application, performing any necessary cleanup before shutdown.
    */
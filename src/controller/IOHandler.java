@@ -7,6 +7,8 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.Objects;
 import model.IModel;
+import model.ImageView;
+import model.Storage;
 import utils.HistogramGenerator;
 
 /**
@@ -33,9 +35,20 @@ public class IOHandler {
   }
 
   public void load(File file, String alias) {
+    load(file, alias, Storage.HEAP);
+  }
+
+  /**
+   * Loads an image into the model, keeping its pixels in the given storage.
+   *
+   * @param file    the image file.
+   * @param alias   the name of the image in the model.
+   * @param storage the storage to keep the image in.
+   */
+  public void load(File file, String alias, Storage storage) {
     try {
       ImageHandler ih = Objects.requireNonNull(findMatchingImageHandler(file.getPath()));
-      model.setImage(ih.loadImage(), alias);
+      model.setImage(ih.loadImage(storage), alias);
     } catch (NullPointerException e) {
       throw new UnsupportedOperationException(
           "No matching ImageHandler found for the provided file extension.");
@@ -48,10 +61,11 @@ public class IOHandler {
     try {
       createParentDirectories(file);
       ImageHandler ih = Objects.requireNonNull(findMatchingImageHandler(file.getPath()));
-      int[][][]
+      ImageView
           ig =
-          (model.isHistogram(alias)) ? new HistogramGenerator(model.getHistogram(alias)).getImage()
-                                     : model.getImage(alias);
+          (model.isHistogram(alias))
+          ? ImageView.of(new HistogramGenerator(model.getHistogram(alias)).getImage())
+          : model.getImageView(alias);
       ih.saveImage(ig);
     } catch (NullPointerException e) {
       throw new UnsupportedOperationException(
@@ -1,8 +1,23 @@
 package controller.imagehandler;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DirectColorModel;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
 import java.io.IOException;
+import java.util.Iterator;
+import javax.imageio.IIOException;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import model.Image;
+import model.ImageBuilder;
+import model.ImageView;
+import model.Storage;
 import utils.BufferedImageGenerator;
 
 /**
@@ -13,17 +28,17 @@ import utils.BufferedImageGenerator;
  *
  * <p>
  * This class can handle images with standard RGB channels (red, green, blue), where each pixel is
- * represented as an integer value containing RGB values. The {@code loadImage()} method reads the
- * image from the file, and the {@code saveImage()} method saves it back to the file in the
- * specified format.
+ * represented as an integer value containing RGB values. The {@code loadImage(Storage)} method
+ * decodes the image from the file into the given storage, and the {@code saveImage()} method saves
+ * it back to the file in the specified format.
  * </p>
  *
  * <h3>Usage Example:</h3>
  * <pre>
  *   // For example, loading and saving a PNG image
  *   CommonImageHandler handler = new CommonImageHandler("path/to/image.png", "png");
- *   int[][][] pixelData = handler.loadImage();  // Load the image into a 3D array
- *   handler.saveImage(pixelData);              // Save the image from the 3D array
+ *   Image image = handler.loadImage(Storage.HEAP);  // Load the image into heap planes
+ *   handler.saveImage(image);                       // Save the image
  * </pre>
  */
 class CommonImageHandler extends AbstractImageHandler {
@@ -39,43 +54,84 @@ class CommonImageHandler extends AbstractImageHandler {
   }
 
   /**
-   * Loads the image from the specified file and returns its pixel data in a 3D array. The array
-   * format is [row][column][RGB], where each RGB value is stored as an integer.
+   * Loads the image from the specified file, decoding it straight into the planes of an image
+   * allocated from {@code storage}.
    *
    * <p>
-   * This method uses Java's {@code ImageIO} to read the image file and then extracts the RGB values
-   * of each pixel, storing them in a 3D array.
+   * When the file is decoded to 8 bit sRGB samples, as photos are, the {@code ImageReader} writes
+   * every decoded pixel through a {@code DataBuffer} that sets the samples in an
+   * {@link ImageBuilder}, so no {@code BufferedImage} of the whole image is allocated. Other files,
+   * e.g. grayscale or palette images, are first decoded in their own compact format and then
+   * converted one row at a time. Either way the samples are those of {@code getRGB}, without the
+   * transparency.
    * </p>
    *
-   * @return a 3D array containing the RGB values of each pixel in the image
+   * @param storage the storage to allocate the planes of the image from
+   * @return the image
    * @throws IOException if there is an error reading the image file
    */
-  public int[][][] loadImage() throws IOException {
-    BufferedImage image = ImageIO.read(getPath());
-
-    int width = image.getWidth();
-    int height = image.getHeight();
-
-    // 3D array to store [row][column][RGB] values
-    int[][][] pixelData = new int[height][width][3];
-
-    // Iterate over each pixel and extract RGB values
-    for (int y = 0; y < height; y++) {
-      for (int x = 0; x < width; x++) {
-        int rgb = image.getRGB(x, y); // Get pixel value as a single integer
-
-        // Extract individual red, green, blue values
-        int red = (rgb >> 16) & 0xFF;
-        int green = (rgb >> 8) & 0xFF;
-        int blue = rgb & 0xFF;
+  @Override
+  public Image loadImage(Storage storage) throws IOException {
+    if (!getPath().canRead()) {
+      throw new IIOException("Can't read input file!");
+    }
+    try (ImageInputStream input = ImageIO.createImageInputStream(getPath())) {
+      Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+      if (!readers.hasNext()) {
+        throw new IIOException("Unsupported image file: " + getPath());
+      }
+      ImageReader reader = readers.next();
+      try {
+        reader.setInput(input, true, true);
+        int width = reader.getWidth(0);
+        int height = reader.getHeight(0);
+        ImageBuilder builder = new ImageBuilder(height, width, 3, storage);
+        ColorModel colorModel = reader.getImageTypes(0).next().getColorModel();
+        if (isRgb(colorModel)) {
+          DirectColorModel packed = colorModel.hasAlpha()
+                                    ? new DirectColorModel(32, 0xFF0000, 0xFF00, 0xFF, 0xFF000000)
+                                    : new DirectColorModel(24, 0xFF0000, 0xFF00, 0xFF);
+          WritableRaster raster = Raster.createWritableRaster(
+              packed.createCompatibleSampleModel(width, height), new BuilderBuffer(builder), null);
+          ImageReadParam param = reader.getDefaultReadParam();
+          param.setDestination(new BufferedImage(packed, raster, false, null));
+          reader.read(0, param);
+        }
+        else {
+          BufferedImage image = reader.read(0);
+          int[] row = new int[width];
+          for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            for (int x = 0; x < width; x++) {
+              BuilderBuffer.setPixel(builder, y, x, row[x]);
+            }
+          }
+        }
+        return builder.build();
+      } finally {
+        reader.dispose();
+      }
+    }
+  }
 
-        // Store RGB values in the 3D array
-        pixelData[y][x][0] = red;
-        pixelData[y][x][1] = green;
-        pixelData[y][x][2] = blue;
+  /**
+   * Checks if a color model has 8 bit sRGB samples, with or without transparency, so its pixels
+   * can be decoded into packed RGB integers without a color conversion.
+   *
+   * @param colorModel the color model the reader decodes to
+   * @return true if the pixels can be decoded into packed RGB integers
+   */
+  private static boolean isRgb(ColorModel colorModel) {
+    if (!colorModel.getColorSpace().isCS_sRGB() || colorModel instanceof IndexColorModel
+        || colorModel.getNumColorComponents() != 3) {
+      return false;
+    }
+    for (int size : colorModel.getComponentSize()) {
+      if (size != 8) {
+        return false;
       }
     }
-    return pixelData;
+    return true;
   }
 
   /**
@@ -83,18 +139,60 @@ class CommonImageHandler extends AbstractImageHandler {
    *
    * <p>
    * This method uses Java's {@code ImageIO} to write the pixel data to a file in the specified
-   * format. The pixel data is converted from a 3D array to a {@code BufferedImage} before saving.
+   * format. The pixel data is streamed from the view into a {@code BufferedImage} before saving.
    * </p>
    *
-   * @param pixelData the 3D array containing the RGB values of the image
+   * @param pixelData a view of the RGB values of the image
    * @throws IOException if there is an error writing the image file
    */
   @Override
-  public void saveImage(int[][][] pixelData) throws IOException {
+  public void saveImage(ImageView pixelData) throws IOException {
     BufferedImage image = BufferedImageGenerator.createBufferedImage(pixelData);
 
     // Write the image to the file in the specified format
     ImageIO.write(image, getExtension(), getPath());
   }
 
+  /**
+   * The data of a packed RGB raster, written straight into the planes of an {@link ImageBuilder}.
+   * Element {@code i} is the pixel at row {@code i / width} and column {@code i % width}.
+   */
+  private static final class BuilderBuffer extends DataBuffer {
+
+    private final ImageBuilder builder;
+    private final int width;
+
+    private BuilderBuffer(ImageBuilder builder) {
+      super(DataBuffer.TYPE_INT, builder.getHeight() * builder.getWidth());
+      this.builder = builder;
+      this.width = builder.getWidth();
+    }
+
+    @Override
+    public int getElem(int bank, int i) {
+      int row = i / width;
+      int col = i % width;
+      return (builder.get(Image.RED, row, col) << 16) | (builder.get(Image.GREEN, row, col) << 8)
+             | builder.get(Image.BLUE, row, col);
+    }
+
+    @Override
+    public void setElem(int bank, int i, int val) {
+      setPixel(builder, i / width, i % width, val);
+    }
+
+    /**
+     * Sets the red, green and blue samples of a pixel from a packed RGB integer.
+     *
+     * @param builder the builder of the image.
+     * @param row     the row of the pixel.
+     * @param col     the column of the pixel.
+     * @param rgb     the packed pixel, the transparency is ignored.
+     */
+    private static void setPixel(ImageBuilder builder, int row, int col, int rgb) {
+      builder.set(Image.RED, row, col, (rgb >> 16) & 0xFF);
+      builder.set(Image.GREEN, row, col, (rgb >> 8) & 0xFF);
+      builder.set(Image.BLUE, row, col, rgb & 0xFF);
+    }
+  }
 }
@@ -2,6 +2,8 @@ package controller.imagehandler;
 
 import java.io.IOException;
 import model.Image;
+import model.ImageView;
+import model.Storage;
 
 /**
  * The {@code ImageHandler} interface provides an abstraction for loading and saving images. It
@@ -21,7 +23,7 @@ import model.Image;
  *   ImageHandler ppmHandler = getMatchingImageHandler("../koala.ppm");
  *
  *   // In the model:
- *   Image image = pngHandler.loadImage();   // Load PNG image
+ *   Image image = pngHandler.loadImage(Storage.HEAP);   // Load PNG image
  *   ppmHandler.saveImage(imageData);       // Save to PPM format
  * </pre>
  * <p>
@@ -36,16 +38,18 @@ public interface ImageHandler {
    * Loads an image from a specified file path.
    *
    * <p>
-   * This method is called by the model using the file path provided by the controller. The image
-   * data is returned in an {@code Image} object, which contains the pixel data (e.g., red, green,
-   * blue, and alpha channels) along with the image's dimensions (width and height).
+   * This method is called by the model using the file path provided by the controller. The pixels
+   * are decoded row by row straight into the planes of an {@code Image} allocated from
+   * {@code storage}, so an image kept off the heap is never held in a heap array while it loads.
+   * The image has the red, green and blue channels of the file.
    * </p>
    *
+   * @param storage the storage to allocate the planes of the image from
    * @return an {@code Image} object containing the pixel data and properties of the loaded image
    * @throws IOException if there is an error reading the image file
    * @see Image
    */
-  int[][][] loadImage() throws IOException;
+  Image loadImage(Storage storage) throws IOException;
 
   /**
    * Saves an {@code Image} object to a specified file path.
@@ -59,5 +63,16 @@ public interface ImageHandler {
    * @param image the {@code Image} object containing the pixel data and properties to be saved
    * @throws IOException if there is an error writing the image file
    */
-  void saveImage(int[][][] image) throws IOException;
+  default void saveImage(int[][][] image) throws IOException {
+    saveImage(ImageView.of(image));
+  }
+
+  /**
+   * Saves the pixels of a read-only {@code ImageView} to a specified file path. The pixels are
+   * streamed from the view, so a cached {@code Image} can be saved without copying it first.
+   *
+   * @param image a view of the pixel data to be saved
+   * @throws IOException if there is an error writing the image file
+   */
+  void saveImage(ImageView image) throws IOException;
 }
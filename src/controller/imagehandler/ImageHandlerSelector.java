@@ -17,8 +17,8 @@ import java.lang.reflect.InvocationTargetException;
  * <pre>
  *   // For a file path with ".png" extension, the PNG handler is selected
  *   ImageHandler handler = ImageHandlerSelector.PNG.createImageHandler("path/to/image.png");
- *   int[][][] pixelData = handler.loadImage();  // Load the image into a 3D array
- *   handler.saveImage(pixelData);              // Save the image from the 3D array
+ *   Image image = handler.loadImage(Storage.HEAP);  // Load the image into heap planes
+ *   handler.saveImage(image);                       // Save the image
  * </pre>
  */
 public enum ImageHandlerSelector {
@@ -1,10 +1,16 @@
 package controller.imagehandler;
 
-import java.io.FileInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.FileNotFoundException;
+import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.util.Scanner;
+import java.io.Reader;
+import model.Image;
+import model.ImageBuilder;
+import model.ImageView;
+import model.Storage;
 
 /**
  * The {@code PPMHandler} class is responsible for handling PPM (Portable Pixel Map) image files. It
@@ -12,8 +18,8 @@ import java.util.Scanner;
  * values in a human-readable format.
  *
  * <p>
- * The {@code loadImage} method reads an image from a PPM file and returns the pixel data as a 3D
- * array, where each pixel is represented by an RGB triplet. The {@code saveImage} method writes
+ * The {@code loadImage} method reads an image from a PPM file straight into the planes of an
+ * image, where each pixel is represented by an RGB triplet. The {@code saveImage} method writes
  * pixel data to a PPM file in the "P3" format, which includes the header information and the pixel
  * values.
  * </p>
@@ -22,10 +28,10 @@ import java.util.Scanner;
  * <pre>
  *   // To load a PPM image
  *   PPMHandler ppmHandler = new PPMHandler("path/to/image.ppm", "ppm");
- *   int[][][] pixelData = ppmHandler.loadImage();  // Load the image into a 3D array
+ *   Image image = ppmHandler.loadImage(Storage.HEAP);  // Load the image into heap planes
  *
  *   // To save a PPM image
- *   ppmHandler.saveImage(pixelData);  // Save the image from the 3D array
+ *   ppmHandler.saveImage(image);  // Save the image
  * </pre>
  */
 class PPMHandler extends AbstractImageHandler {
@@ -44,66 +50,86 @@ class PPMHandler extends AbstractImageHandler {
    * Loads a PPM image from the file system.
    *
    * <p>
-   * This method reads the PPM image file, ignoring any comment lines (lines starting with '#') and
-   * extracting the image's width, height, and RGB pixel values. It returns the image as a 3D array
-   * of integers, where each pixel is represented by three integers for the red, green, and blue
-   * components.
+   * This method reads the PPM image file one token at a time, ignoring comments (from '#' to the
+   * end of the line) and extracting the image's width, height, and RGB pixel values. The values are
+   * written straight into the planes of an image allocated from {@code storage}, so neither the
+   * text of the file nor the pixels are held in memory as a whole.
    * </p>
    *
-   * @return a 3D array containing the RGB values of the image
+   * @param storage the storage to allocate the planes of the image from
+   * @return the image
    * @throws FileNotFoundException    if the PPM file cannot be found
+   * @throws IOException              if there is an error reading the PPM file
    * @throws IllegalArgumentException if the file is not a valid PPM file
    */
   @Override
-  public int[][][] loadImage() throws FileNotFoundException {
-    Scanner sc = new Scanner(new FileInputStream(getPath()));
-    StringBuilder builder = new StringBuilder();
-
-    // Read the file line by line, ignoring comment lines
-    while (sc.hasNextLine()) {
-      String s = sc.nextLine();
-      if (s.charAt(0) != '#') {
-        builder.append(s).append(System.lineSeparator());
+  public Image loadImage(Storage storage) throws IOException {
+    try (Reader reader = new BufferedReader(new FileReader(getPath()))) {
+      if (!nextToken(reader).equals("P3")) {
+        throw new IllegalArgumentException("Invalid PPM file");
       }
-    }
-
-    // Set up the scanner to read from the string built without comments
-    sc = new Scanner(builder.toString());
-
-    String token = sc.next();
-    if (!token.equals("P3")) {
-      throw new IllegalArgumentException("Invalid PPM file");
-    }
-    int width = sc.nextInt();
-    int height = sc.nextInt();
-    int maxValue = sc.nextInt();
-
-    int[][][] image = new int[width][height][3];
-
-    // Read pixel data and store it in the 3D array
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        int r = sc.nextInt();
-        if (r > maxValue) {
-          maxValue = r;
-        }
-        image[i][j][0] = r;
-
-        int g = sc.nextInt();
-        if (g > maxValue) {
-          maxValue = g;
+      int width = nextInt(reader);
+      int height = nextInt(reader);
+      nextInt(reader); // The maximum value; samples are clamped to [0, 255].
+
+      ImageBuilder builder = new ImageBuilder(height, width, 3, storage);
+      for (int i = 0; i < height; i++) {
+        for (int j = 0; j < width; j++) {
+          builder.set(Image.RED, i, j, nextInt(reader));
+          builder.set(Image.GREEN, i, j, nextInt(reader));
+          builder.set(Image.BLUE, i, j, nextInt(reader));
         }
-        image[i][j][1] = g;
+      }
+      return builder.build();
+    }
+  }
 
-        int b = sc.nextInt();
-        if (b > maxValue) {
-          maxValue = b;
+  /**
+   * Reads the next whitespace separated token, skipping comments.
+   *
+   * @param reader the reader of the file
+   * @return the token
+   * @throws IOException              if there is an error reading the file
+   * @throws IllegalArgumentException if the file ends before the token
+   */
+  private static String nextToken(Reader reader) throws IOException {
+    StringBuilder token = new StringBuilder();
+    int c = reader.read();
+    while (c != -1 && (Character.isWhitespace(c) || c == '#')) {
+      if (c == '#') {
+        while (c != -1 && c != '\n' && c != '\r') {
+          c = reader.read();
         }
-        image[i][j][2] = b;
       }
+      else {
+        c = reader.read();
+      }
+    }
+    while (c != -1 && !Character.isWhitespace(c)) {
+      token.append((char) c);
+      c = reader.read();
     }
+    if (token.length() == 0) {
+      throw new IllegalArgumentException("Invalid PPM file: unexpected end of file");
+    }
+    return token.toString();
+  }
 
-    return image;
+  /**
+   * Reads the next token as an integer, skipping comments.
+   *
+   * @param reader the reader of the file
+   * @return the value
+   * @throws IOException              if there is an error reading the file
+   * @throws IllegalArgumentException if the token is not an integer or the file ends before it
+   */
+  private static int nextInt(Reader reader) throws IOException {
+    String token = nextToken(reader);
+    try {
+      return Integer.parseInt(token);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid PPM file: " + token + " is not a number");
+    }
   }
 
   /**
@@ -114,16 +140,16 @@ class PPMHandler extends AbstractImageHandler {
    * height, maximum color value (255), and the RGB values for each pixel.
    * </p>
    *
-   * @param image a 3D array representing the RGB pixel data to be saved
+   * @param image a view of the RGB pixel data to be saved
    * @throws IOException if there is an error writing to the PPM file
    */
   @Override
-  public void saveImage(int[][][] image) throws IOException {
-    int height = image.length;
-    int width = image[0].length;
+  public void saveImage(ImageView image) throws IOException {
+    int height = image.getHeight();
+    int width = image.getWidth();
 
-    // Create a FileWriter object to write to the file
-    FileWriter writer = new FileWriter(getPath());
+    // Create a buffered FileWriter object to write to the file
+    BufferedWriter writer = new BufferedWriter(new FileWriter(getPath()));
 
     // Write the PPM header
     writer.write("P3\n");  // Magic number
@@ -133,9 +159,9 @@ class PPMHandler extends AbstractImageHandler {
     // Write the pixel data
     for (int i = 0; i < height; i++) {
       for (int j = 0; j < width; j++) {
-        int r = image[i][j][0];  // Red value
-        int g = image[i][j][1];  // Green value
-        int b = image[i][j][2];  // Blue value
+        int r = image.getValue(0, i, j);  // Red value
+        int g = image.getValue(1, i, j);  // Green value
+        int b = image.getValue(2, i, j);  // Blue value
         writer.write(r + " " + g + " " + b + " ");
       }
       writer.write("\n");  // Newline after each row
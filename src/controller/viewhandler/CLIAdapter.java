@@ -8,6 +8,8 @@ import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
+import java.util.Set;
+import model.Storage;
 import utils.arguments.ArgumentWrapper;
 import utils.arguments.MandatedArgWrapper;
 import utils.arguments.StringArgument;
@@ -24,6 +26,17 @@ public class CLIAdapter implements ViewAdapter, CLIObserver {
 
   CLI cli;
   Features controller;
+  // The messages of the script step running on this thread, printed once the step is done.
+  private final ThreadLocal<Transcript> transcript = new ThreadLocal<>();
+
+  /**
+   * The messages of a script step, collected like the message buffer of the {@link CLI}.
+   */
+  private static class Transcript {
+
+    private final StringBuilder buffer = new StringBuilder();
+    private final List<String> messages = new ArrayList<>();
+  }
 
   /**
    * Constructs a new CLIAdapter with the given InputStream and PrintStream.
@@ -37,7 +50,7 @@ public class CLIAdapter implements ViewAdapter, CLIObserver {
 
   @Override
   public void notifyExecutionOnFailure(String reason) {
-    cli.appendMessage(reason);
+    appendMessage(reason);
   }
 
   @Override
@@ -59,7 +72,37 @@ public class CLIAdapter implements ViewAdapter, CLIObserver {
 
   @Override
   public void notifyExecutionOnSuccess() {
-    cli.appendMessage("\nSTATUS: DONE");
+    appendMessage("\nSTATUS: DONE");
+  }
+
+  /**
+   * Appends a message to the buffer of the CLI, or of the script step running on this thread.
+   *
+   * @param message the message.
+   */
+  private void appendMessage(String message) {
+    Transcript step = transcript.get();
+    if (step == null) {
+      cli.appendMessage(message);
+    }
+    else {
+      step.buffer.append('\n').append(message);
+    }
+  }
+
+  /**
+   * Prints the buffer of the CLI, or keeps the buffer of the script step running on this thread
+   * to be printed in script order.
+   */
+  private void printMessage() {
+    Transcript step = transcript.get();
+    if (step == null) {
+      cli.printMessage();
+    }
+    else {
+      step.messages.add(step.buffer.toString());
+      step.buffer.setLength(0);
+    }
   }
 
   @Override
@@ -70,8 +113,24 @@ public class CLIAdapter implements ViewAdapter, CLIObserver {
       case "run":
         if (tokens.length > 1) {
           List<String> scriptCommands = parseScript(tokens[1]);
-          for (String cmd : scriptCommands) {
-            commandRunner(cmd);
+          // Aliases the script writes and then reads are released after their last read, unless
+          // saved, pinned or all kept with --keep; the last write of an alias is kept.
+          // Independent steps run on up to --jobs threads.
+          boolean keep = false;
+          int jobs = Runtime.getRuntime().availableProcessors();
+          for (int i = 2; i < tokens.length && jobs > 0; i++) {
+            if (tokens[i].equals("--keep")) {
+              keep = true;
+            }
+            else if (tokens[i].equals("--jobs")) {
+              jobs = (i + 1 < tokens.length) ? parseJobs(tokens[++i]) : 0;
+            }
+          }
+          if (jobs > 0) {
+            scriptRunner(scriptCommands, keep, jobs);
+          }
+          else {
+            cli.printMessage("Incorrect use of run command: --jobs needs a positive number");
           }
         }
         else {
@@ -93,6 +152,63 @@ public class CLIAdapter implements ViewAdapter, CLIObserver {
     }
   }
 
+  /**
+   * Runs the lines of a script. Chains of point operations run as one pass, writing only the
+   * aliases used later, and the steps run concurrently where they use different aliases, see
+   * {@link ScriptScheduler}. The messages of every line are printed in script order.
+   *
+   * @param scriptCommands the lines of the script.
+   * @param keep           whether to keep aliases after their last use.
+   * @param jobs           the number of steps to run at once.
+   */
+  private void scriptRunner(List<String> scriptCommands, boolean keep, int jobs) {
+    ScriptPlan plan = new ScriptPlan(scriptCommands, controller);
+    List<List<String>> releases = plan.getReleases();
+    List<Integer> chainEnds = plan.getChainEnds();
+    List<int[]> steps = new ArrayList<>();
+    for (int i = 0; i < scriptCommands.size(); i = chainEnds.get(i) + 1) {
+      steps.add(new int[]{i, chainEnds.get(i)});
+    }
+
+    List<Runnable> runners = new ArrayList<>();
+    List<List<String>> messages = new ArrayList<>();
+    for (int[] step : steps) {
+      List<String> stepMessages = new ArrayList<>();
+      messages.add(stepMessages);
+      runners.add(() -> {
+        transcript.set(new Transcript());
+        try {
+          int start = step[0];
+          int end = step[1];
+          if (end == start || !fusedRunner(scriptCommands.subList(start, end + 1),
+                                           plan.getMaterialized(start, end, keep))) {
+            for (int line = start; line <= end; line++) {
+              commandRunner(scriptCommands.get(line));
+            }
+          }
+          for (int line = start; line <= end; line++) {
+            for (String alias : releases.get(line)) {
+              if (!keep) {
+                controller.releaseImage(alias);
+              }
+            }
+          }
+        } finally {
+          stepMessages.addAll(transcript.get().messages);
+          transcript.remove();
+        }
+      });
+    }
+    new ScriptScheduler(plan.getDependencies(steps), jobs).run(runners, (step, error) -> {
+      for (String message : messages.get(step)) {
+        cli.printMessage(message);
+      }
+      if (error != null) {
+        cli.printMessage("ERROR: " + error.getMessage());
+      }
+    });
+  }
+
   private List<String> parseScript(String path) {
     List<String> commands = new ArrayList<>();
     try (Scanner sc = new Scanner(new File(path))) {
@@ -109,19 +225,119 @@ public class CLIAdapter implements ViewAdapter, CLIObserver {
   }
 
 
+  /**
+   * Parses the number of jobs of a run command, e.g.: {@code run script.txt --jobs 4}.
+   *
+   * @param value the token after {@code --jobs}.
+   * @return the number of jobs, or 0 if the token is not a number.
+   */
+  private int parseJobs(String value) {
+    try {
+      return Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+
+  /**
+   * Parses the storage option of a load command, e.g.: {@code load big.png big --tiled}.
+   *
+   * @param option the option token.
+   * @return the storage to keep the image in.
+   */
+  private Storage parseStorage(String option) {
+    switch (option) {
+      case "--tiled":
+        return Storage.TILED;
+      case "--offheap":
+        return Storage.OFF_HEAP;
+      case "--mmap":
+        return Storage.MAPPED;
+      case "--float":
+        return Storage.FLOAT;
+      default:
+        throw new IllegalArgumentException("Invalid load option: " + option);
+    }
+  }
+
+  /**
+   * Runs a chain of point operations found by the {@link ScriptPlan} as one pass, and reports
+   * every line of the chain as done.
+   *
+   * @param commands     the lines of the chain.
+   * @param materialized the aliases used after the chain.
+   * @return false if the chain could not run as one pass and nothing was executed.
+   */
+  private boolean fusedRunner(List<String> commands, Set<String> materialized) {
+    List<String> names = new ArrayList<>();
+    List<ArgumentWrapper> arguments = new ArrayList<>();
+    try {
+      for (String command : commands) {
+        String[] tokens = command.split(" ");
+        String commandHead = tokens[0].trim().toLowerCase();
+        names.add(commandHead);
+        arguments.add(parseArguments(commandHead, tokens));
+      }
+    } catch (RuntimeException e) {
+      return false;
+    }
+    if (!controller.invokeFused(names, arguments, materialized)) {
+      return false;
+    }
+    for (String command : commands) {
+      appendMessage(command);
+      notifyExecutionOnSuccess();
+      printMessage();
+    }
+    return true;
+  }
+
+  /**
+   * Parses the arguments of a command line following the signature of the command: the mandatory
+   * arguments first, then keyword and value pairs of optional arguments.
+   *
+   * @param commandHead the name of the command.
+   * @param tokens      the tokens of the line.
+   * @return the arguments.
+   */
+  private MandatedArgWrapper parseArguments(String commandHead, String[] tokens) {
+    MandatedArgWrapper wrapper = controller.getMandatedArgs(commandHead);
+
+    for (int i = 1; i < tokens.length; i++) {
+      if (i > wrapper.expectedLength()) {
+        // Mandatory arguments are collected. Now check for optional args.
+        wrapper.setArgument(tokens[i], tokens[i + 1]);
+        i += 1;
+      }
+      else {
+        wrapper.setArgument(i - 1, tokens[i]);
+      }
+
+    }
+    return wrapper;
+  }
+
   private void commandRunner(String command) {
-    cli.appendMessage(command);
+    appendMessage(command);
     String[] tokens = command.split(" ");
     String commandHead = tokens[0].trim().toLowerCase();
     try {
 
       switch (commandHead) {
         case "load":
-          controller.loadImage(new File(tokens[1]), tokens[2]);
+          if (tokens.length > 3) {
+            controller.loadImage(new File(tokens[1]), tokens[2], parseStorage(tokens[3]));
+          }
+          else {
+            controller.loadImage(new File(tokens[1]), tokens[2]);
+          }
           break;
         case "save":
           controller.saveImage(new File(tokens[1]), tokens[2]);
           break;
+        case "cache-stats":
+          appendMessage(controller.getCacheStats());
+          break;
 
         case "blur":
         case "sharpen":
@@ -152,28 +368,15 @@ public class CLIAdapter implements ViewAdapter, CLIObserver {
           }
           break;
         default:
-          MandatedArgWrapper wrapper1 = controller.getMandatedArgs(commandHead);
-
-          for (int i = 1; i < tokens.length; i++) {
-            if (i > wrapper1.expectedLength()) {
-              // Mandatory arguments are collected. Now check for optional args.
-              wrapper1.setArgument(tokens[i], tokens[i + 1]);
-              i += 1;
-            }
-            else {
-              wrapper1.setArgument(i - 1, tokens[i]);
-            }
-
-          }
-          controller.invokeCommand(commandHead, wrapper1);
+          controller.invokeCommand(commandHead, parseArguments(commandHead, tokens));
 
       }
     } catch (ArrayIndexOutOfBoundsException e) {
-      cli.appendMessage("ERROR: Incorrect number of arguments for command: " + commandHead);
+      appendMessage("ERROR: Incorrect number of arguments for command: " + commandHead);
     } catch (Exception e) {
-      cli.appendMessage("ERROR: " + e.getMessage());
+      appendMessage("ERROR: " + e.getMessage());
     } finally {
-      cli.printMessage();
+      printMessage();
     }
   }
 
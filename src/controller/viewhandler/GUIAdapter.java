@@ -3,6 +3,7 @@ package controller.viewhandler;
 import controller.Features;
 import java.io.File;
 import model.ISingleSessionModel;
+import model.ImageView;
 import model.SingleSessionModel;
 import utils.BufferedImageGenerator;
 import utils.HistogramGenerator;
@@ -137,6 +138,12 @@ public class GUIAdapter implements ViewAdapter, GUIObserver, ViewUpdater {
     gui.updateImage(BufferedImageGenerator.createBufferedImage(image));
   }
 
+  // Updates the image displayed in the GUI, reading the pixels straight from the view
+  @Override
+  public void updateDisplay(ImageView image) {
+    gui.updateImage(BufferedImageGenerator.createBufferedImage(image));
+  }
+
   // Updates the histogram displayed in the GUI
   @Override
   public void updateHistogram(int[][] histogram) {
@@ -0,0 +1,305 @@
+package controller.viewhandler;
+
+import controller.Features;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import utils.arguments.ArgumentType;
+import utils.arguments.MandatedArgWrapper;
+import utils.arguments.OptionalArgumentKeyword;
+
+/**
+ * Analyzes the aliases read and written by the lines of a script before it runs. The reads and
+ * writes of a line are found the same way {@link CLIAdapter} runs it: {@code load} writes its
+ * alias, {@code save} reads it, {@code cache-drop} and {@code unpin} write it, and other commands
+ * read their {@code IMAGE} arguments (and mask image) and write their {@code STRING} arguments,
+ * following the signature of the command.
+ * <br>
+ * From these, the plan finds the aliases that are dead after a line, so they can be released from
+ * the cache right after it: those whose last use is a line reading them, after an earlier line
+ * wrote them. An alias is never released after the line writing it last, so results the script
+ * does not read again are kept, as are aliases that were there before the script, whether it only
+ * reads them or overwrites them. Aliases the script saves or pins are retained too.
+ * <br>
+ * The plan also finds chains of point operations (see {@link Features#getPointOperations()}),
+ * where each line reads only the alias written by the line before and has no optional arguments.
+ * A chain runs as one pass over the image, and the aliases released within the chain are never
+ * written.
+ * <br>
+ * Finally, the plan orders the steps of a script (single lines or chains) for running them
+ * concurrently: a step waits for the earlier steps writing what it reads, reading or writing what
+ * it writes, and, if an alias is released after it, every earlier use of the alias. Lines that use
+ * no alias, such as {@code cache-stats} or an invalid line, wait for all earlier steps and all
+ * later steps wait for them.
+ */
+class ScriptPlan {
+
+  private final List<String> lines;
+  private final List<Set<String>> reads = new ArrayList<>();
+  private final List<Set<String>> writes = new ArrayList<>();
+  private final List<Set<String>> fileReads = new ArrayList<>();
+  private final List<Set<String>> fileWrites = new ArrayList<>();
+  private final Set<String> retained = new HashSet<>();
+  private final List<Boolean> fusible = new ArrayList<>();
+
+  /**
+   * Analyzes a script.
+   *
+   * @param lines      the command lines of the script, without comments and empty lines.
+   * @param controller the controller, to look up the signatures of commands.
+   */
+  ScriptPlan(List<String> lines, Features controller) {
+    this.lines = new ArrayList<>(lines);
+    Set<String> pointOperations = controller.getPointOperations();
+    for (String line : lines) {
+      Set<String> read = new LinkedHashSet<>();
+      Set<String> written = new LinkedHashSet<>();
+      Set<String> fileRead = new HashSet<>();
+      Set<String> fileWritten = new HashSet<>();
+      String[] tokens = line.split(" ");
+      analyze(tokens, controller, read, written, fileRead, fileWritten);
+      reads.add(read);
+      writes.add(written);
+      fileReads.add(fileRead);
+      fileWrites.add(fileWritten);
+      String commandHead = tokens[0].trim().toLowerCase();
+      fusible.add(pointOperations.contains(commandHead) && read.size() == 1
+                  && written.size() == 1
+                  && tokens.length - 1 == controller.getMandatedArgs(commandHead).expectedLength());
+    }
+  }
+
+  /**
+   * Finds, for every line, the last line of the chain of point operations starting there.
+   *
+   * @return the last line of each chain, or the line itself if no chain of two or more lines
+   *         starts there.
+   */
+  List<Integer> getChainEnds() {
+    List<Integer> ends = new ArrayList<>();
+    for (int line = 0; line < lines.size(); line++) {
+      int end = line;
+      while (fusible.get(line) && end + 1 < lines.size() && fusible.get(end + 1)
+             && reads.get(end + 1).equals(writes.get(end))) {
+        end++;
+      }
+      ends.add(end);
+    }
+    return ends;
+  }
+
+  /**
+   * Finds the aliases a chain must write: those written by its last line that writes them, and not
+   * released within the chain. With {@code keep}, every alias written is kept.
+   *
+   * @param start the first line of the chain.
+   * @param end   the last line of the chain.
+   * @param keep  whether aliases are kept after their last use.
+   * @return the aliases to write.
+   */
+  Set<String> getMaterialized(int start, int end, boolean keep) {
+    Map<String, Integer> released = getReleaseLines();
+    Set<String> materialized = new HashSet<>();
+    for (int line = start; line <= end; line++) {
+      for (String alias : writes.get(line)) {
+        if (keep || !released.containsKey(alias) || released.get(alias) > end) {
+          materialized.add(alias);
+        }
+      }
+    }
+    return materialized;
+  }
+
+  /**
+   * Finds, for every line, the aliases that are dead after it, see {@link #getReleaseLines()}.
+   *
+   * @return the aliases to release after each line.
+   */
+  List<List<String>> getReleases() {
+    List<List<String>> releases = new ArrayList<>();
+    for (int line = 0; line < lines.size(); line++) {
+      releases.add(new ArrayList<>());
+    }
+    getReleaseLines().forEach((alias, line) -> releases.get(line).add(alias));
+    return releases;
+  }
+
+  /**
+   * Finds the aliases that can be released and the line after which each is dead: not retained,
+   * and last used by a line that reads but does not write it, after an earlier line wrote it.
+   *
+   * @return the line after which each alias can be released.
+   */
+  private Map<String, Integer> getReleaseLines() {
+    Map<String, Integer> lastUse = getLastUses();
+    Map<String, Integer> released = new HashMap<>();
+    lastUse.forEach((alias, line) -> {
+      if (!retained.contains(alias) && reads.get(line).contains(alias)
+          && !writes.get(line).contains(alias) && isWrittenBefore(alias, line)) {
+        released.put(alias, line);
+      }
+    });
+    return released;
+  }
+
+  /**
+   * Checks if a line before the given one writes an alias.
+   *
+   * @param alias the alias.
+   * @param line  the line.
+   * @return true if an earlier line writes the alias.
+   */
+  private boolean isWrittenBefore(String alias, int line) {
+    for (int earlier = 0; earlier < line; earlier++) {
+      if (writes.get(earlier).contains(alias)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Finds, for every step of the script, the earlier steps it must wait for.
+   *
+   * @param steps the first and last line of every step, in script order.
+   * @return the indices of the earlier steps each step depends on.
+   */
+  List<Set<Integer>> getDependencies(List<int[]> steps) {
+    Map<String, Integer> released = getReleaseLines();
+    List<Set<String>> stepReads = new ArrayList<>();
+    List<Set<String>> stepWrites = new ArrayList<>();
+    List<Set<String>> stepLastUses = new ArrayList<>();
+    for (int[] step : steps) {
+      Set<String> read = new HashSet<>();
+      Set<String> written = new HashSet<>();
+      Set<String> lastUses = new HashSet<>();
+      for (int line = step[0]; line <= step[1]; line++) {
+        // Aliases and files are told apart by a prefix; neither contains spaces.
+        reads.get(line).forEach(alias -> read.add("alias " + alias));
+        writes.get(line).forEach(alias -> written.add("alias " + alias));
+        fileReads.get(line).forEach(file -> read.add("file " + file));
+        fileWrites.get(line).forEach(file -> written.add("file " + file));
+      }
+      for (int line = step[0]; line <= step[1]; line++) {
+        for (String alias : reads.get(line)) {
+          if (released.get(alias) != null && released.get(alias) <= step[1]) {
+            lastUses.add("alias " + alias);
+          }
+        }
+      }
+      stepReads.add(read);
+      stepWrites.add(written);
+      stepLastUses.add(lastUses);
+    }
+
+    List<Set<Integer>> dependencies = new ArrayList<>();
+    for (int step = 0; step < steps.size(); step++) {
+      Set<Integer> before = new HashSet<>();
+      boolean barrier = stepReads.get(step).isEmpty() && stepWrites.get(step).isEmpty();
+      for (int earlier = 0; earlier < step; earlier++) {
+        boolean earlierBarrier = stepReads.get(earlier).isEmpty()
+                                 && stepWrites.get(earlier).isEmpty();
+        if (barrier || earlierBarrier
+            || !Collections.disjoint(stepReads.get(step), stepWrites.get(earlier))
+            || !Collections.disjoint(stepWrites.get(step), stepReads.get(earlier))
+            || !Collections.disjoint(stepWrites.get(step), stepWrites.get(earlier))
+            || !Collections.disjoint(stepLastUses.get(step), stepReads.get(earlier))) {
+          before.add(earlier);
+        }
+      }
+      dependencies.add(before);
+    }
+    return dependencies;
+  }
+
+  /**
+   * Finds the last line reading or writing each alias.
+   *
+   * @return the last line using each alias.
+   */
+  private Map<String, Integer> getLastUses() {
+    Map<String, Integer> lastUse = new HashMap<>();
+    for (int line = 0; line < lines.size(); line++) {
+      for (String alias : reads.get(line)) {
+        lastUse.put(alias, line);
+      }
+      for (String alias : writes.get(line)) {
+        lastUse.put(alias, line);
+      }
+    }
+    return lastUse;
+  }
+
+  /**
+   * Finds the aliases a line reads and writes, and the aliases it retains.
+   *
+   * @param tokens      the tokens of the line.
+   * @param controller  the controller, to look up the signatures of commands.
+   * @param read        the set to add the aliases read to.
+   * @param written     the set to add the aliases written to.
+   * @param fileRead    the set to add the files read to.
+   * @param fileWritten the set to add the files written to.
+   */
+  private void analyze(String[] tokens, Features controller, Set<String> read,
+                       Set<String> written, Set<String> fileRead, Set<String> fileWritten) {
+    String commandHead = tokens[0].trim().toLowerCase();
+    try {
+      switch (commandHead) {
+        case "load":
+          written.add(tokens[2]);
+          fileRead.add(tokens[1]);
+          break;
+        case "save":
+          read.add(tokens[2]);
+          retained.add(tokens[2]);
+          fileWritten.add(tokens[1]);
+          break;
+        case "pin":
+          retained.add(tokens[1]);
+          break;
+        case "unpin":
+        case "cache-drop":
+          // Changes the entry of the alias, so it is ordered like a write.
+          written.add(tokens[1]);
+          break;
+        case "blur":
+        case "sharpen":
+        case "grayscale":
+        case "sepia":
+        case "red-component":
+        case "green-component":
+        case "blue-component":
+          read.add(tokens[1]);
+          if (tokens.length == 4) {
+            // with a mask image.
+            read.add(tokens[2]);
+          }
+          written.add(tokens[tokens.length - 1]);
+          break;
+        default:
+          MandatedArgWrapper signature = controller.getMandatedArgs(commandHead);
+          for (int i = 1; i < tokens.length; i++) {
+            if (i > signature.expectedLength()) {
+              if (OptionalArgumentKeyword.MASKIMG.getArgumentName().equals(tokens[i])) {
+                read.add(tokens[i + 1]);
+              }
+              i += 1;
+            }
+            else if (signature.expectedAt(i - 1) == ArgumentType.IMAGE) {
+              read.add(tokens[i]);
+            }
+            else if (signature.expectedAt(i - 1) == ArgumentType.STRING) {
+              written.add(tokens[i]);
+            }
+          }
+      }
+    } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+      // The line is invalid and reports its error when it runs; it uses no alias.
+    }
+  }
+}
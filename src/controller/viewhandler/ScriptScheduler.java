@@ -0,0 +1,96 @@
+package controller.viewhandler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+
+/**
+ * Runs the steps of a script on a bounded number of threads, each step as soon as the steps it
+ * depends on are done, see {@link ScriptPlan#getDependencies(List)}. Independent steps, e.g. the
+ * processing of different photos, run concurrently, while the steps using the same alias keep
+ * their order in the script.
+ * <br>
+ * The steps are reported in script order, whatever order they finish in: {@code done} is called on
+ * the calling thread for every step, once it and all steps before it are done. A step that throws
+ * does not stop the steps depending on it, which then run and report their own errors, as they
+ * would if the script ran line by line.
+ */
+class ScriptScheduler {
+
+  private final List<Set<Integer>> dependencies;
+  private final int jobs;
+
+  /**
+   * Creates a scheduler.
+   *
+   * @param dependencies the indices of the earlier steps each step depends on.
+   * @param jobs         the number of steps to run at once, 1 to run them one by one on the
+   *                     calling thread.
+   * @throws IllegalArgumentException if the number of jobs is not positive.
+   */
+  ScriptScheduler(List<Set<Integer>> dependencies, int jobs) {
+    if (jobs <= 0) {
+      throw new IllegalArgumentException("Number of jobs must be positive.");
+    }
+    this.dependencies = dependencies;
+    this.jobs = jobs;
+  }
+
+  /**
+   * Runs the steps and waits for all of them.
+   *
+   * @param steps the steps, one per entry of the dependencies.
+   * @param done  called in script order with the index of every step, and the exception it threw
+   *              or null.
+   */
+  void run(List<Runnable> steps, BiConsumer<Integer, RuntimeException> done) {
+    if (jobs == 1) {
+      for (int step = 0; step < steps.size(); step++) {
+        RuntimeException error = null;
+        try {
+          steps.get(step).run();
+        } catch (RuntimeException e) {
+          error = e;
+        }
+        done.accept(step, error);
+      }
+      return;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(jobs, runnable -> {
+      Thread thread = new Thread(runnable, "script-step");
+      thread.setDaemon(true);
+      return thread;
+    });
+    try {
+      List<CompletableFuture<Void>> futures = new ArrayList<>();
+      for (int step = 0; step < steps.size(); step++) {
+        CompletableFuture<?>[] before = dependencies.get(step).stream()
+                                                    .map(futures::get)
+                                                    .toArray(CompletableFuture[]::new);
+        // Runs after the steps before it, whether they failed or not.
+        futures.add(CompletableFuture.allOf(before)
+                                     .handle((ignored, error) -> null)
+                                     .thenRunAsync(steps.get(step), executor));
+      }
+      for (int step = 0; step < steps.size(); step++) {
+        RuntimeException error = null;
+        try {
+          futures.get(step).join();
+        } catch (CompletionException e) {
+          error = (e.getCause() instanceof RuntimeException)
+                  ? (RuntimeException) e.getCause()
+                  : e;
+        }
+        done.accept(step, error);
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
@@ -1,5 +1,7 @@
 package controller.viewhandler;
 
+import model.ImageView;
+
 /**
  * A ISingleSessionModel can update the instance of this interface.
  */
@@ -12,6 +14,17 @@ public interface ViewUpdater {
    */
   void updateDisplay(int[][][] image);
 
+  /**
+   * Updates the image on the display area from a read-only view of the image. Implementations
+   * should override this to stream the pixels without copying; by default the view is copied into a
+   * 3D array.
+   *
+   * @param image an ImageView to update the image.
+   */
+  default void updateDisplay(ImageView image) {
+    updateDisplay(image.getImageArray());
+  }
+
   /**
    * Updates the histogram whenever an operation is performed.
    *
@@ -0,0 +1,62 @@
+package model;
+
+/**
+ * A {@link Plane} backed by one contiguous, row-major {@code byte} array on the heap.
+ */
+class ArrayPlane extends WritablePlane {
+
+  private final byte[] samples;
+
+  /**
+   * Creates an empty plane.
+   *
+   * @param height the number of rows.
+   * @param width  the number of columns.
+   */
+  ArrayPlane(int height, int width) {
+    this(height, width, new byte[height * width]);
+  }
+
+  /**
+   * Creates a plane that takes ownership of {@code samples}. The caller must not modify the array
+   * afterwards.
+   *
+   * @param height  the number of rows.
+   * @param width   the number of columns.
+   * @param samples the row-major samples of the plane.
+   */
+  ArrayPlane(int height, int width, byte[] samples) {
+    super(height, width);
+    this.samples = samples;
+  }
+
+  @Override
+  public int get(int index) {
+    return samples[index] & 0xFF;
+  }
+
+  @Override
+  public int get(int row, int col) {
+    return samples[row * width + col] & 0xFF;
+  }
+
+  @Override
+  public long getSizeInBytes() {
+    return samples.length;
+  }
+
+  @Override
+  public Storage getStorage() {
+    return Storage.HEAP;
+  }
+
+  @Override
+  void set(int index, int sample) {
+    samples[index] = (byte) sample;
+  }
+
+  @Override
+  void set(int row, int col, int sample) {
+    samples[row * width + col] = (byte) sample;
+  }
+}
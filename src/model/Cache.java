@@ -1,18 +1,49 @@
 package model;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * This class represents a temporary storage medium for a collection of {@code model.Image}. A
- * {@code java.util.HashMap} is used to store the {@code model.Image} and is identified by a unique
- * name.
+ * {@code java.util.concurrent.ConcurrentHashMap} is used to store the {@code model.Image} and is
+ * identified by a unique name.
  * <br>
  * This class provides basic operations such as accessing an image given a name, removing an image
  * given a name, and setting a new image/overwriting a name with a new image.
  * <br>
- * This class being static, cannot be instantiated.
+ * The cache can be bounded by a memory budget in bytes. The size of the cache is the memory held by
+ * the planes of its images and by its histograms, where a plane shared by several images (see
+ * {@link Image#Image(int, int, Plane...)}) is only counted once. When a new entry pushes the size
+ * over the budget, the least recently used entries are evicted until it fits again. Pinned entries
+ * are never evicted, and neither is the entry just set.
+ * <br>
+ * Evicted entries are spilled to raw files in the scratch directory (see
+ * {@link Storage#setScratchDirectory(java.nio.file.Path)}) and read back transparently the next
+ * time they are looked up. An entry is only dropped if it cannot be written to disk.
+ * <br>
+ * Images that have not been used for a while (see {@link #setCompressionDelay(long)}) can also be
+ * compressed in memory, and are decompressed when they are looked up again.
+ * <br>
+ * Instead of an image, a name can also hold a {@link Recipe}: a deferred command that is only
+ * executed the first time one of its results is looked up. Until then the entry holds the inputs
+ * the recipe captured, which stay counted even if their names are overwritten, and it cannot be
+ * spilled. The results remembered by the {@link Memo} of the cache count towards its size too.
+ * <br>
+ * The cache is thread-safe. Every name has its own read/write lock, so commands working on
+ * different names do not block each other; only the memory accounting and the choice of entries to
+ * evict are shared.
  * <br>
  * Usage:
  * <pre>
@@ -26,9 +57,96 @@ import java.util.NoSuchElementException;
 public class Cache implements HistogramCacheable, ImageCacheable {
 
   /**
-   * hashmap to store cached images and histograms.
+   * concurrent hashmap to store cached images and histograms.
+   */
+  private final ConcurrentMap<String, Entry> cache = new ConcurrentHashMap<>();
+
+  /**
+   * the number of cached images referencing each plane. Guarded by itself, like {@code size}.
+   */
+  private final Map<Plane, Integer> planeReferences = new IdentityHashMap<>();
+
+  /**
+   * the entries that may be compressed, from least to most recently used, while compression is
+   * enabled. Guarded by itself.
+   */
+  private final Map<Entry, Boolean> compressionOrder = new LinkedHashMap<>(16, 0.75f, true);
+
+  /**
+   * ticks on every access, to order the entries from least to most recently used.
+   */
+  private final AtomicLong clock = new AtomicLong();
+
+  /**
+   * held while choosing and evicting entries, so only one thread evicts at a time.
+   */
+  private final Object evictionLock = new Object();
+
+  /**
+   * counters for {@link #getStats()}.
+   */
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+
+  private final long budget;
+  private final Memo memo;
+  private long size = 0;
+  // Entries idle for longer are compressed, never by default.
+  private volatile long compressionDelay = Long.MAX_VALUE;
+
+  /**
+   * A named slot of the cache. The value and the spill file are guarded by the lock of the entry.
+   */
+  private static final class Entry {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // The image, histogram, recipe or compressed entry, null while spilled or dropped.
+    private volatile Object value;
+    // The file the value was spilled to, null unless spilled.
+    private Path file;
+    // Whether the value was evicted but could not be spilled.
+    private volatile boolean dropped;
+    private volatile boolean pinned;
+    private volatile long lastUsed;
+    // The System.nanoTime() of the last use.
+    private volatile long lastAccess;
+    // Whether compressing the value did not make it smaller.
+    private volatile boolean incompressible;
+  }
+
+  /**
+   * Creates a cache without a memory budget.
+   */
+  public Cache() {
+    this(Long.MAX_VALUE);
+  }
+
+  /**
+   * Creates a cache bounded by a memory budget.
+   *
+   * @param budget the maximum size of the cache in bytes.
+   * @throws IllegalArgumentException if the budget is not positive.
+   */
+  public Cache(long budget) {
+    if (budget <= 0) {
+      throw new IllegalArgumentException("Cache budget must be positive.");
+    }
+    this.budget = budget;
+    this.memo = new Memo(Math.min(budget, Memo.LIMIT), this);
+  }
+
+  /**
+   * Creates a cache without a memory budget that shares the remembered command results of another
+   * cache.
+   *
+   * @param memo the remembered command results.
    */
-  private final Map<String, Object> cache = new HashMap<>();
+  Cache(Memo memo) {
+    this.budget = Long.MAX_VALUE;
+    this.memo = memo;
+  }
 
   /**
    * get method to get an image object from cache.
@@ -40,11 +158,11 @@ public class Cache implements HistogramCacheable, ImageCacheable {
 
   @Override
   public Image get(String name) throws NoSuchElementException {
-    Image image = (Image) cache.get(name);
-    if (!(cache.get(name) instanceof Image)) {
-      throw new NoSuchElementException("Image " + name + " not found in cache.");
+    Object value = resolve(name);
+    if (!(value instanceof Image)) {
+      throw new NoSuchElementException(notFound("Image", name));
     }
-    return image;
+    return (Image) value;
   }
 
   /**
@@ -55,7 +173,7 @@ public class Cache implements HistogramCacheable, ImageCacheable {
    */
   @Override
   public void set(String name, Image image) {
-    cache.put(name, image);
+    put(name, image);
   }
 
   /**
@@ -66,7 +184,22 @@ public class Cache implements HistogramCacheable, ImageCacheable {
    */
   @Override
   public void set(String name, Histogram histogram) {
-    cache.put(name, histogram);
+    put(name, histogram);
+  }
+
+  /**
+   * Maps every output of a recipe to the recipe, capturing its inputs. The recipe is executed the
+   * first time one of its outputs is looked up; outputs that are overwritten before that are never
+   * computed.
+   *
+   * @param recipe the deferred command.
+   * @throws NoSuchElementException if an input of the recipe is not in the cache.
+   */
+  public void set(Recipe recipe) throws NoSuchElementException {
+    recipe.capture(this);
+    for (String name : recipe.getOutputs()) {
+      put(name, recipe);
+    }
   }
 
   /**
@@ -77,7 +210,7 @@ public class Cache implements HistogramCacheable, ImageCacheable {
    */
   @Override
   public boolean isHistogram(String name) {
-    return cache.get(name) instanceof Histogram;
+    return resolve(name) instanceof Histogram;
   }
 
   /**
@@ -89,10 +222,648 @@ public class Cache implements HistogramCacheable, ImageCacheable {
    */
   @Override
   public Histogram getHistogram(String name) throws NoSuchElementException {
-    Histogram histogram = (Histogram) cache.get(name);
-    if (histogram == null || !(cache.get(name) instanceof Histogram)) {
-      throw new NoSuchElementException("Histogram " + name + " not found in cache.");
+    Object value = resolve(name);
+    if (!(value instanceof Histogram)) {
+      throw new NoSuchElementException(notFound("Histogram", name));
+    }
+    return (Histogram) value;
+  }
+
+  /**
+   * Pins an entry so it is never evicted.
+   *
+   * @param name the name of the image or histogram.
+   * @throws NoSuchElementException if the name is not in the cache.
+   */
+  public void pin(String name) throws NoSuchElementException {
+    Entry entry = cache.get(name);
+    if (entry == null) {
+      throw new NoSuchElementException(notFound("Entry", name));
+    }
+    entry.lock.readLock().lock();
+    try {
+      if (entry.value == null && entry.file == null) {
+        throw new NoSuchElementException(notFound("Entry", name));
+      }
+      entry.pinned = true;
+    } finally {
+      entry.lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Unpins an entry, so it can be evicted again. Unpinning an entry that is not pinned does
+   * nothing.
+   *
+   * @param name the name of the image or histogram.
+   */
+  public void unpin(String name) {
+    Entry entry = cache.get(name);
+    if (entry != null) {
+      entry.pinned = false;
+      if (compressionDelay != Long.MAX_VALUE) {
+        synchronized (compressionOrder) {
+          compressionOrder.putIfAbsent(entry, Boolean.TRUE);
+        }
+      }
+      evict(null);
+    }
+  }
+
+  /**
+   * Removes an entry, freeing its memory and its spill file. The remembered results sharing its
+   * planes are forgotten, while other names sharing its planes keep them.
+   *
+   * @param name the name of the image or histogram.
+   * @throws NoSuchElementException if the name is not in the cache.
+   */
+  public void remove(String name) throws NoSuchElementException {
+    Entry entry = cache.remove(name);
+    if (entry == null) {
+      throw new NoSuchElementException(notFound("Entry", name));
+    }
+    entry.lock.writeLock().lock();
+    try {
+      clear(entry);
+    } finally {
+      entry.lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes an entry that is no longer used, like {@link #remove(String)}, unless it is pinned.
+   * Does nothing if the name is not in the cache.
+   *
+   * @param name the name of the image or histogram.
+   * @return true if the entry was removed.
+   */
+  public boolean releaseIfUnpinned(String name) {
+    Entry entry = cache.get(name);
+    if (entry == null) {
+      return false;
+    }
+    entry.lock.writeLock().lock();
+    try {
+      // Pinning takes the lock of the entry, so it cannot be pinned while it is removed.
+      if (entry.pinned || !cache.remove(name, entry)) {
+        return false;
+      }
+      clear(entry);
+      return true;
+    } finally {
+      entry.lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Frees the memory and the spill file of an entry that left the map. Guarded by the write lock of
+   * the entry.
+   *
+   * @param entry the entry.
+   */
+  private void clear(Entry entry) {
+    synchronized (compressionOrder) {
+      compressionOrder.remove(entry);
+    }
+    if (entry.value instanceof Image) {
+      // Remembered results would keep the planes in memory.
+      memo.forgetSharing((Image) entry.value);
+    }
+    release(entry.value);
+    entry.value = null;
+    if (entry.file != null) {
+      SpillFile.delete(entry.file);
+      entry.file = null;
+    }
+  }
+
+  /**
+   * Takes a snapshot of the entries and counters of the cache.
+   *
+   * @return the statistics.
+   */
+  public CacheStats getStats() {
+    List<CacheStats.Entry> entries = new ArrayList<>();
+    for (Map.Entry<String, Entry> named : cache.entrySet()) {
+      Entry entry = named.getValue();
+      entry.lock.readLock().lock();
+      try {
+        String state = (entry.file != null) ? "spilled"
+                       : (entry.value instanceof Recipe) ? "deferred"
+                         : (entry.value instanceof CompressedEntry) ? "compressed"
+                         : (entry.value == null) ? "dropped" : "";
+        if (entry.pinned) {
+          state = (state.isEmpty()) ? "pinned" : state + ", pinned";
+        }
+        entries.add(new CacheStats.Entry(named.getKey(), sizeOf(entry.value), state));
+      } finally {
+        entry.lock.readLock().unlock();
+      }
+    }
+    return new CacheStats(entries, getSize(), budget, hits.get(), misses.get(), evictions.get(),
+                          memo.getHits(), memo.getMisses());
+  }
+
+  /**
+   * Checks if an entry is pinned.
+   *
+   * @param name the name of the image or histogram.
+   * @return true if the entry is pinned.
+   */
+  public boolean isPinned(String name) {
+    Entry entry = cache.get(name);
+    return entry != null && entry.pinned;
+  }
+
+  /**
+   * Checks if an entry is currently spilled to disk.
+   *
+   * @param name the name of the image or histogram.
+   * @return true if the entry was evicted to disk and not read back yet.
+   */
+  public boolean isSpilled(String name) {
+    Entry entry = cache.get(name);
+    if (entry == null) {
+      return false;
+    }
+    entry.lock.readLock().lock();
+    try {
+      return entry.file != null;
+    } finally {
+      entry.lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Gets the memory held by the cached images and histograms.
+   *
+   * @return the size of the cache in bytes.
+   */
+  public long getSize() {
+    synchronized (planeReferences) {
+      return size;
+    }
+  }
+
+  /**
+   * Sets how long an image must go unused before it is compressed in memory. Compression happens
+   * while the cache is used, on the thread using it.
+   *
+   * @param millis the delay in milliseconds, or {@link Long#MAX_VALUE} to never compress.
+   * @throws IllegalArgumentException if the delay is negative.
+   */
+  public void setCompressionDelay(long millis) {
+    if (millis < 0) {
+      throw new IllegalArgumentException("Compression delay must not be negative.");
+    }
+    compressionDelay = (millis == Long.MAX_VALUE) ? Long.MAX_VALUE : millis * 1_000_000;
+    synchronized (compressionOrder) {
+      compressionOrder.clear();
+      if (compressionDelay != Long.MAX_VALUE) {
+        List<Entry> entries = new ArrayList<>(cache.values());
+        entries.sort(Comparator.comparingLong(entry -> entry.lastAccess));
+        entries.forEach(entry -> compressionOrder.put(entry, Boolean.TRUE));
+      }
+    }
+    compressIdle();
+  }
+
+  /**
+   * Gets the results of commands remembered for this cache, see {@link Memo}.
+   *
+   * @return the remembered command results.
+   */
+  public Memo getMemo() {
+    return memo;
+  }
+
+  /**
+   * Gets the memory budget of the cache.
+   *
+   * @return the budget in bytes, {@link Long#MAX_VALUE} if the cache is unbounded.
+   */
+  public long getBudget() {
+    return budget;
+  }
+
+  /**
+   * Maps a name to an entry, releasing the entry it replaces, and evicts other entries if the cache
+   * is over its budget.
+   *
+   * @param name  the name.
+   * @param value the image, histogram or recipe.
+   */
+  void put(String name, Object value) {
+    Entry entry = cache.computeIfAbsent(name, key -> new Entry());
+    entry.lock.writeLock().lock();
+    // The entry may have been removed before it was locked.
+    while (cache.get(name) != entry) {
+      entry.lock.writeLock().unlock();
+      entry = cache.computeIfAbsent(name, key -> new Entry());
+      entry.lock.writeLock().lock();
+    }
+    try {
+      retain(value);
+      release(entry.value);
+      entry.value = value;
+      entry.dropped = false;
+      entry.incompressible = false;
+      if (entry.file != null) {
+        SpillFile.delete(entry.file);
+        entry.file = null;
+      }
+      touch(entry);
+    } finally {
+      entry.lock.writeLock().unlock();
+    }
+    // Compressing first may make room without spilling.
+    compressIdle();
+    evict(name);
+  }
+
+  /**
+   * Gets an entry without computing it.
+   *
+   * @param name the name.
+   * @return the image, histogram or recipe.
+   * @throws NoSuchElementException if the name is not in the cache.
+   */
+  Object peek(String name) throws NoSuchElementException {
+    Object value = lookup(name);
+    if (value == null) {
+      throw new NoSuchElementException(notFound("Entry", name));
+    }
+    return value;
+  }
+
+  /**
+   * Gets an entry, computing it first if it holds a recipe.
+   *
+   * @param name the name.
+   * @return the image or histogram, or null if there is none.
+   */
+  Object resolve(String name) {
+    Object value = lookup(name);
+    if (!(value instanceof Recipe)) {
+      return value;
+    }
+    Recipe recipe = (Recipe) value;
+    Object result = recipe.result(name);
+    // Every output is replaced by its result, so the captured inputs are no longer held.
+    for (String output : recipe.getOutputs()) {
+      Entry entry = cache.get(output);
+      if (entry == null) {
+        continue;
+      }
+      Object outputResult;
+      try {
+        outputResult = output.equals(name) ? result : recipe.result(output);
+      } catch (NoSuchElementException e) {
+        // Not written by the command; reported when the name is looked up.
+        continue;
+      }
+      entry.lock.writeLock().lock();
+      try {
+        // Unless the name was overwritten while the recipe was computed.
+        if (entry.value == recipe) {
+          retain(outputResult);
+          release(recipe);
+          entry.value = outputResult;
+        }
+      } finally {
+        entry.lock.writeLock().unlock();
+      }
+    }
+    evict(name);
+    return result;
+  }
+
+  /**
+   * Gets an entry, reading it back from disk if it was spilled and decompressing it if it was
+   * compressed.
+   *
+   * @param name the name.
+   * @return the image, histogram or recipe, or null if there is none.
+   * @throws IllegalStateException if a spilled entry cannot be read back.
+   */
+  private Object lookup(String name) {
+    Entry entry = cache.get(name);
+    if (entry == null) {
+      misses.incrementAndGet();
+      return null;
+    }
+    entry.lock.readLock().lock();
+    try {
+      if (entry.file == null && !(entry.value instanceof CompressedEntry)) {
+        touch(entry);
+        (entry.value == null ? misses : hits).incrementAndGet();
+        return entry.value;
+      }
+    } finally {
+      entry.lock.readLock().unlock();
+    }
+
+    Object value;
+    misses.incrementAndGet();
+    entry.lock.writeLock().lock();
+    try {
+      // Another thread may have read it back in the meantime.
+      if (entry.file != null) {
+        try {
+          entry.value = SpillFile.read(entry.file);
+        } catch (IOException e) {
+          entry.dropped = true;
+          throw new IllegalStateException(
+              "Could not read " + name + " back from the scratch directory: " + e.getMessage());
+        } finally {
+          entry.file = null;
+        }
+        retain(entry.value);
+      }
+      if (entry.value instanceof CompressedEntry) {
+        Object restored = ((CompressedEntry) entry.value).restore();
+        retain(restored);
+        release(entry.value);
+        entry.value = restored;
+        // It did get smaller, but it is in use again.
+        entry.incompressible = false;
+      }
+      touch(entry);
+      value = entry.value;
+    } finally {
+      entry.lock.writeLock().unlock();
+    }
+    // Compressing first may make room without spilling.
+    compressIdle();
+    evict(name);
+    return value;
+  }
+
+  /**
+   * Marks an entry as used now.
+   *
+   * @param entry the entry.
+   */
+  private void touch(Entry entry) {
+    entry.lastUsed = clock.incrementAndGet();
+    entry.lastAccess = System.nanoTime();
+    if (compressionDelay != Long.MAX_VALUE) {
+      synchronized (compressionOrder) {
+        compressionOrder.put(entry, Boolean.TRUE);
+      }
+    }
+  }
+
+  /**
+   * Compresses the images that have not been used for longer than the compression delay, unless
+   * they are pinned or in use by another thread. The entries are visited from least to most
+   * recently used, up to the first one used within the delay, and each leaves the order until it is
+   * used again, so an entry is only visited once per use.
+   */
+  private void compressIdle() {
+    long delay = compressionDelay;
+    if (delay == Long.MAX_VALUE) {
+      return;
+    }
+    long now = System.nanoTime();
+    List<Entry> idle = new ArrayList<>();
+    synchronized (compressionOrder) {
+      Iterator<Entry> entries = compressionOrder.keySet().iterator();
+      while (entries.hasNext()) {
+        Entry entry = entries.next();
+        if (now - entry.lastAccess < delay) {
+          // The entries after it were used more recently.
+          break;
+        }
+        entries.remove();
+        idle.add(entry);
+      }
+    }
+    for (Entry entry : idle) {
+      Object value = entry.value;
+      if (!(value instanceof Image) || entry.pinned || entry.incompressible
+          || sizeOf(value) == 0) {
+        continue;
+      }
+      if (!entry.lock.writeLock().tryLock()) {
+        // In use; visited again after the delay.
+        synchronized (compressionOrder) {
+          compressionOrder.putIfAbsent(entry, Boolean.TRUE);
+        }
+        continue;
+      }
+      try {
+        if (entry.value != value || entry.pinned) {
+          continue;
+        }
+        CompressedEntry compressed = CompressedEntry.compress(value);
+        if (compressed.getSizeInBytes() < sizeOf(value)) {
+          // Remembered results would keep the planes in memory.
+          memo.forgetSharing((Image) value);
+          retain(compressed);
+          release(value);
+          entry.value = compressed;
+        }
+        else {
+          entry.incompressible = true;
+        }
+      } finally {
+        entry.lock.writeLock().unlock();
+      }
+    }
+  }
+
+  /**
+   * Forgets the oldest remembered results that hold memory of their own, and then evicts the least
+   * recently used entries that are not pinned, until the cache fits its budget. Evicted entries are
+   * spilled to disk, together with the remembered results sharing their planes; recipes and entries
+   * that hold no memory are left in place. Entries in use by another thread are skipped.
+   *
+   * @param keep the name of an entry that must not be evicted, or null.
+   */
+  private void evict(String keep) {
+    if (getSize() <= budget) {
+      return;
+    }
+    synchronized (evictionLock) {
+      // A remembered result only saves recomputing it, so it goes before any entry.
+      boolean forgotten = true;
+      while (forgotten && getSize() > budget) {
+        forgotten = memo.forgetEldest(this::holdsMemory);
+      }
+      List<Map.Entry<String, Entry>> candidates = new ArrayList<>();
+      for (Map.Entry<String, Entry> candidate : cache.entrySet()) {
+        Entry entry = candidate.getValue();
+        if (!candidate.getKey().equals(keep) && !entry.pinned && entry.value != null) {
+          candidates.add(candidate);
+        }
+      }
+      candidates.sort(Comparator.comparingLong(candidate -> candidate.getValue().lastUsed));
+
+      for (Map.Entry<String, Entry> candidate : candidates) {
+        if (getSize() <= budget) {
+          return;
+        }
+        Entry entry = candidate.getValue();
+        if (!entry.lock.writeLock().tryLock()) {
+          continue;
+        }
+        try {
+          Object value = entry.value;
+          if (value == null || entry.pinned || value instanceof Recipe || sizeOf(value) == 0) {
+            continue;
+          }
+          if (value instanceof Image) {
+            memo.forgetSharing((Image) value);
+          }
+          entry.value = null;
+          release(value);
+          evictions.incrementAndGet();
+          try {
+            entry.file = SpillFile.write(value);
+          } catch (IOException e) {
+            entry.dropped = true;
+          }
+        } finally {
+          entry.lock.writeLock().unlock();
+        }
+      }
+    }
+  }
+
+  /**
+   * Gets the memory held by an entry on its own. A recipe holds its captured inputs.
+   *
+   * @param value the image, histogram, recipe or compressed entry.
+   * @return the size in bytes.
+   */
+  static long sizeOf(Object value) {
+    if (value instanceof Histogram) {
+      return ((Histogram) value).getSizeInBytes();
+    }
+    if (value instanceof CompressedEntry) {
+      return ((CompressedEntry) value).getSizeInBytes();
+    }
+    if (value instanceof Recipe) {
+      long size = 0;
+      for (Object input : ((Recipe) value).getCaptured()) {
+        size += sizeOf(input);
+      }
+      return size;
+    }
+    return (value instanceof Image) ? ((Image) value).getSizeInBytes() : 0;
+  }
+
+  /**
+   * Accounts for the memory of remembered results, see {@link #retain(Object)}.
+   *
+   * @param values the images and histograms.
+   */
+  void retainAll(List<Object> values) {
+    values.forEach(this::retain);
+  }
+
+  /**
+   * Releases the memory of forgotten results, see {@link #release(Object)}.
+   *
+   * @param values the images and histograms.
+   */
+  void releaseAll(List<Object> values) {
+    values.forEach(this::release);
+  }
+
+  /**
+   * Checks if releasing values would free memory: they hold a histogram, or a plane no other entry
+   * or result references.
+   *
+   * @param values the images and histograms.
+   * @return true if the values hold memory of their own.
+   */
+  private boolean holdsMemory(List<Object> values) {
+    synchronized (planeReferences) {
+      for (Object value : values) {
+        if (value instanceof Histogram) {
+          return true;
+        }
+        if (value instanceof Image) {
+          Image image = (Image) value;
+          for (int c = 0; c < image.getNoOfChannels(); c++) {
+            if (planeReferences.getOrDefault(image.getPlane(c), 0) == 1) {
+              return true;
+            }
+          }
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Accounts for the memory of a new entry. Planes already referenced by other images are not
+   * counted again, and a recipe accounts for its captured inputs.
+   *
+   * @param value the image, histogram, recipe or compressed entry.
+   */
+  private void retain(Object value) {
+    synchronized (planeReferences) {
+      if (value instanceof Recipe) {
+        ((Recipe) value).getCaptured().forEach(this::retain);
+      }
+      else if (value instanceof Histogram || value instanceof CompressedEntry) {
+        size += sizeOf(value);
+      }
+      else if (value instanceof Image) {
+        Image image = (Image) value;
+        for (int c = 0; c < image.getNoOfChannels(); c++) {
+          Plane plane = image.getPlane(c);
+          if (planeReferences.merge(plane, 1, Integer::sum) == 1) {
+            size += plane.getSizeInBytes();
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Releases the memory of an entry that left the cache. Planes still referenced by other images
+   * stay counted.
+   *
+   * @param value the image, histogram, recipe or compressed entry, or null.
+   */
+  private void release(Object value) {
+    synchronized (planeReferences) {
+      if (value instanceof Recipe) {
+        ((Recipe) value).getCaptured().forEach(this::release);
+      }
+      else if (value instanceof Histogram || value instanceof CompressedEntry) {
+        size -= sizeOf(value);
+      }
+      else if (value instanceof Image) {
+        Image image = (Image) value;
+        for (int c = 0; c < image.getNoOfChannels(); c++) {
+          Plane plane = image.getPlane(c);
+          if (planeReferences.merge(plane, -1, Integer::sum) == 0) {
+            planeReferences.remove(plane);
+            size -= plane.getSizeInBytes();
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Builds the message for a name that is not in the cache.
+   *
+   * @param kind the kind of entry that was expected.
+   * @param name the name.
+   * @return the message.
+   */
+  private String notFound(String kind, String name) {
+    Entry entry = cache.get(name);
+    if (entry != null && entry.dropped) {
+      return kind + " " + name + " was evicted from the cache to stay within its memory budget and"
+             + " could not be spilled to disk.";
     }
-    return histogram;
+    return kind + " " + name + " not found in cache.";
   }
 }
@@ -0,0 +1,141 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A snapshot of the entries and counters of a {@link Cache}, see {@link Cache#getStats()}. The
+ * {@link #toString()} of a snapshot is a report for the user, listing the entries largest first.
+ */
+public final class CacheStats {
+
+  /**
+   * The size and state of one cache entry.
+   */
+  public static final class Entry {
+
+    private final String name;
+    private final long size;
+    private final String state;
+
+    Entry(String name, long size, String state) {
+      this.name = name;
+      this.size = size;
+      this.state = state;
+    }
+
+    /**
+     * Gets the name of the entry.
+     *
+     * @return the alias.
+     */
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * Gets the memory held by the entry on its own. Planes shared with other entries are counted
+     * for each of them.
+     *
+     * @return the size in bytes, 0 while spilled or deferred.
+     */
+    public long getSize() {
+      return size;
+    }
+
+    /**
+     * Gets the state of the entry, e.g.: "spilled" or "pinned".
+     *
+     * @return the state, empty for an ordinary entry in memory.
+     */
+    public String getState() {
+      return state;
+    }
+  }
+
+  private final List<Entry> entries;
+  private final long size;
+  private final long budget;
+  private final long hits;
+  private final long misses;
+  private final long evictions;
+  private final long memoHits;
+  private final long memoMisses;
+
+  CacheStats(List<Entry> entries, long size, long budget, long hits, long misses, long evictions,
+             long memoHits, long memoMisses) {
+    this.entries = new ArrayList<>(entries);
+    this.entries.sort((a, b) -> Long.compare(b.size, a.size));
+    this.size = size;
+    this.budget = budget;
+    this.hits = hits;
+    this.misses = misses;
+    this.evictions = evictions;
+    this.memoHits = memoHits;
+    this.memoMisses = memoMisses;
+  }
+
+  /**
+   * Gets the entries, largest first.
+   *
+   * @return the entries.
+   */
+  public List<Entry> getEntries() {
+    return Collections.unmodifiableList(entries);
+  }
+
+  /**
+   * Gets the memory held by the cache, counting shared planes once.
+   *
+   * @return the size in bytes.
+   */
+  public long getSize() {
+    return size;
+  }
+
+  /**
+   * Gets the number of lookups that found their entry in memory.
+   *
+   * @return the number of hits.
+   */
+  public long getHits() {
+    return hits;
+  }
+
+  /**
+   * Gets the number of lookups that had to read their entry back from disk or found nothing.
+   *
+   * @return the number of misses.
+   */
+  public long getMisses() {
+    return misses;
+  }
+
+  /**
+   * Gets the number of entries evicted to stay within the budget.
+   *
+   * @return the number of evictions.
+   */
+  public long getEvictions() {
+    return evictions;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder report = new StringBuilder();
+    report.append(String.format("Entries: %d%n", entries.size()));
+    report.append(String.format("Total: %,d bytes", size));
+    report.append((budget == Long.MAX_VALUE)
+                  ? String.format("%n")
+                  : String.format(" of a %,d bytes budget%n", budget));
+    report.append(String.format("Lookups: %d hits, %d misses, %d evictions%n",
+                                hits, misses, evictions));
+    report.append(String.format("Remembered results: %d hits, %d misses%n", memoHits, memoMisses));
+    report.append("Entries, largest first:");
+    for (Entry entry : entries) {
+      report.append(String.format("%n  %-24s %,15d bytes %s", entry.name, entry.size, entry.state));
+    }
+    return report.toString();
+  }
+}
@@ -0,0 +1,90 @@
+package model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * An image or histogram compressed in memory. Used by the {@link Cache} to keep entries that have
+ * not been used for a while in a fraction of their memory, and restored when they are looked up.
+ * <br>
+ * The entry is written in the format of {@link SpillFile} with every sample stored as the
+ * difference to the previous sample of its row, and then deflated. Photos have smooth rows, so the
+ * differences are mostly small and compress well.
+ */
+final class CompressedEntry {
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final byte[] data;
+
+  /**
+   * Wraps bytes produced by {@link #compress(Object)}, e.g.: read back from a spill file.
+   *
+   * @param data the compressed bytes.
+   */
+  CompressedEntry(byte[] data) {
+    this.data = data;
+  }
+
+  /**
+   * Compresses an image or histogram.
+   *
+   * @param entry the image or histogram.
+   * @return the compressed entry.
+   */
+  static CompressedEntry compress(Object entry) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try (DataOutputStream out = new DataOutputStream(
+        new DeflaterOutputStream(bytes, deflater, BUFFER_SIZE))) {
+      SpillFile.writeEntry(entry, out, true);
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not compress entry: " + e.getMessage());
+    } finally {
+      deflater.end();
+    }
+    return new CompressedEntry(bytes.toByteArray());
+  }
+
+  /**
+   * Decompresses the entry.
+   *
+   * @return the image or histogram, equal to the one compressed.
+   */
+  Object restore() {
+    Inflater inflater = new Inflater();
+    try (DataInputStream in = new DataInputStream(
+        new InflaterInputStream(new ByteArrayInputStream(data), inflater, BUFFER_SIZE))) {
+      return SpillFile.readEntry(in, true);
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not decompress entry: " + e.getMessage());
+    } finally {
+      inflater.end();
+    }
+  }
+
+  /**
+   * Gets the compressed bytes.
+   *
+   * @return the bytes.
+   */
+  byte[] getData() {
+    return data;
+  }
+
+  /**
+   * Gets the memory held by the compressed entry.
+   *
+   * @return the size in bytes.
+   */
+  long getSizeInBytes() {
+    return data.length;
+  }
+}
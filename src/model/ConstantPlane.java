@@ -0,0 +1,68 @@
+package model;
+
+/**
+ * A {@link Plane} whose samples all have the same value, e.g.: the alpha plane of a fully opaque
+ * image. Only the value is stored. The plane remembers the storage of the image it belongs to, so
+ * planes written from it are allocated in that storage.
+ */
+class ConstantPlane implements Plane {
+
+  private final int height;
+  private final int width;
+  private final int value;
+  private final Storage storage;
+
+  /**
+   * Creates a constant plane.
+   *
+   * @param height  the number of rows.
+   * @param width   the number of columns.
+   * @param value   the value of every sample, in [0, 255].
+   * @param storage the storage of the image the plane belongs to.
+   */
+  ConstantPlane(int height, int width, int value, Storage storage) {
+    this.height = height;
+    this.width = width;
+    this.value = value;
+    this.storage = storage;
+  }
+
+  /**
+   * Gets the value of every sample.
+   *
+   * @return the sample value in [0, 255].
+   */
+  int getValue() {
+    return value;
+  }
+
+  @Override
+  public int get(int index) {
+    return value;
+  }
+
+  @Override
+  public int get(int row, int col) {
+    return value;
+  }
+
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  public int getWidth() {
+    return width;
+  }
+
+  @Override
+  public long getSizeInBytes() {
+    return 0;
+  }
+
+  @Override
+  public Storage getStorage() {
+    return storage;
+  }
+}
@@ -0,0 +1,54 @@
+package model;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link Plane} backed by one contiguous, row-major direct {@link ByteBuffer}. The samples live
+ * outside the Java heap, so large images neither count against {@code -Xmx} nor get copied around
+ * by the garbage collector. The native memory is released once the plane is no longer referenced.
+ */
+class DirectPlane extends WritablePlane {
+
+  private final ByteBuffer samples;
+
+  /**
+   * Creates an empty off-heap plane.
+   *
+   * @param height the number of rows.
+   * @param width  the number of columns.
+   */
+  DirectPlane(int height, int width) {
+    super(height, width);
+    this.samples = ByteBuffer.allocateDirect(height * width);
+  }
+
+  @Override
+  public int get(int index) {
+    return samples.get(index) & 0xFF;
+  }
+
+  @Override
+  public int get(int row, int col) {
+    return samples.get(row * width + col) & 0xFF;
+  }
+
+  @Override
+  public long getSizeInBytes() {
+    return samples.capacity();
+  }
+
+  @Override
+  public Storage getStorage() {
+    return Storage.OFF_HEAP;
+  }
+
+  @Override
+  void set(int index, int sample) {
+    samples.put(index, (byte) sample);
+  }
+
+  @Override
+  void set(int row, int col, int sample) {
+    samples.put(row * width + col, (byte) sample);
+  }
+}
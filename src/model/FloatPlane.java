@@ -0,0 +1,63 @@
+package model;
+
+/**
+ * A {@link Plane} backed by one contiguous, row-major {@code float} array on the heap. Samples keep
+ * the full precision a command computed, without rounding or clamping, so chained commands do not
+ * lose precision at every step. Reading a sample as an 8-bit value quantizes it, which is what
+ * saving and displaying an image does.
+ */
+class FloatPlane extends WritablePlane {
+
+  private final float[] samples;
+
+  /**
+   * Creates an empty float plane.
+   *
+   * @param height the number of rows.
+   * @param width  the number of columns.
+   */
+  FloatPlane(int height, int width) {
+    super(height, width);
+    this.samples = new float[height * width];
+  }
+
+  @Override
+  public int get(int index) {
+    return quantize(samples[index]);
+  }
+
+  @Override
+  public int get(int row, int col) {
+    return quantize(samples[row * width + col]);
+  }
+
+  @Override
+  public float getFloat(int row, int col) {
+    return samples[row * width + col];
+  }
+
+  @Override
+  public long getSizeInBytes() {
+    return (long) samples.length * Float.BYTES;
+  }
+
+  @Override
+  public Storage getStorage() {
+    return Storage.FLOAT;
+  }
+
+  @Override
+  void set(int index, int sample) {
+    samples[index] = sample;
+  }
+
+  @Override
+  void set(int row, int col, int sample) {
+    samples[row * width + col] = sample;
+  }
+
+  @Override
+  void setFloat(int row, int col, double value) {
+    samples[row * width + col] = (float) value;
+  }
+}
@@ -1,7 +1,9 @@
 package model;
 
 /**
- * this class represents a histogram object.
+ * this class represents a histogram object. The histogram of an image is best obtained from
+ * {@link Image#getHistogram()}, which computes it only once per image. Basic statistics of each
+ * channel (minimum, maximum and mean) are derived from the frequencies.
  */
 
 public class Histogram {
@@ -19,20 +21,55 @@ public class Histogram {
    * @param image the image object for which we want the histogram.
    */
   public Histogram(Image image) {
-    // Iterate over the image array
-    for (int i = 0; i < image.getHeight(); i++) {
-      for (int j = 0; j < image.getWidth(); j++) {
-        // For each pixel, increment the corresponding bin in each channel's histogram
-        int red = image.getRedChannelData()[i][j];
-        int green = image.getGreenChannelData()[i][j];
-        int blue = image.getBlueChannelData()[i][j];
-
-        // Increment the histogram bin for each channel
-        histogram[0][red]++;  // Red channel
-        histogram[1][green]++; // Green channel
-        histogram[2][blue]++;  // Blue channel
+    for (int channel = 0; channel < histogram.length; channel++) {
+      Plane plane = image.getPlane(channel);
+      int shared = indexOfPlane(image, plane, channel);
+      if (shared >= 0) {
+        // Channels sharing a plane (e.g. gray images) have the same histogram.
+        histogram[channel] = histogram[shared].clone();
+      }
+      else if (plane instanceof ConstantPlane) {
+        histogram[channel][((ConstantPlane) plane).getValue()] = plane.size();
+      }
+      else {
+        // Iterate over the image tile by tile
+        for (Tile tile : image.getTiles()) {
+          for (int i = tile.getRow(); i < tile.getEndRow(); i++) {
+            for (int j = tile.getCol(); j < tile.getEndCol(); j++) {
+              histogram[channel][plane.get(i, j)]++;
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Creates a histogram from existing frequencies, e.g.: a histogram read back from disk.
+   *
+   * @param histogram the frequencies of each value, per channel, as {@code int[3][256]}.
+   */
+  Histogram(int[][] histogram) {
+    for (int channel = 0; channel < this.histogram.length; channel++) {
+      this.histogram[channel] = histogram[channel].clone();
+    }
+  }
+
+  /**
+   * Finds a channel before {@code channel} whose plane is {@code plane}.
+   *
+   * @param image   the image.
+   * @param plane   the plane of {@code channel}.
+   * @param channel the channel.
+   * @return the first channel with the same plane, or -1 if there is none.
+   */
+  private static int indexOfPlane(Image image, Plane plane, int channel) {
+    for (int c = 0; c < channel; c++) {
+      if (image.getPlane(c) == plane) {
+        return c;
       }
     }
+    return -1;
   }
 
   /**
@@ -44,6 +81,61 @@ public class Histogram {
     return histogram;
   }
 
+  /**
+   * Gets the number of bytes of memory held by this histogram.
+   *
+   * @return the size of the histogram data in bytes.
+   */
+  public long getSizeInBytes() {
+    return (long) histogram.length * histogram[0].length * Integer.BYTES;
+  }
+
+  /**
+   * Gets the lowest value of a channel.
+   *
+   * @param channel channel 0-r , 1-g, 2-b .
+   * @return the lowest value with a non-zero frequency, or -1 for an empty image.
+   */
+  public int getMin(int channel) {
+    for (int value = 0; value < histogram[channel].length; value++) {
+      if (histogram[channel][value] > 0) {
+        return value;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Gets the highest value of a channel.
+   *
+   * @param channel channel 0-r , 1-g, 2-b .
+   * @return the highest value with a non-zero frequency, or -1 for an empty image.
+   */
+  public int getMax(int channel) {
+    for (int value = histogram[channel].length - 1; value >= 0; value--) {
+      if (histogram[channel][value] > 0) {
+        return value;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Gets the mean value of a channel.
+   *
+   * @param channel channel 0-r , 1-g, 2-b .
+   * @return the mean value, or 0 for an empty image.
+   */
+  public double getMean(int channel) {
+    long count = 0;
+    long sum = 0;
+    for (int value = 0; value < histogram[channel].length; value++) {
+      count += histogram[channel][value];
+      sum += (long) value * histogram[channel][value];
+    }
+    return (count == 0) ? 0 : (double) sum / count;
+  }
+
   /**
    * get the frequency value for a channel and a specific intensity value.
    *
@@ -1,6 +1,10 @@
 package model;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import utils.arguments.ArgumentWrapper;
 import utils.arguments.Signature;
 
 public interface IModel extends ModelRunner, ImageCacheProvider, HistogramCacheProvider {
@@ -12,4 +16,46 @@ public interface IModel extends ModelRunner, ImageCacheProvider, HistogramCacheP
    * @return String keys mapping to Signatures.
    */
   Map<String, Signature> getCommandSignatures();
+
+  /**
+   * Gets the names of the commands that transform every pixel on its own, which
+   * {@link #executeFused(List, List, Set)} can run as one pass.
+   *
+   * @return the names of the point operations, empty if the model does not fuse commands.
+   */
+  default Set<String> getPointOperations() {
+    return Collections.emptySet();
+  }
+
+  /**
+   * Executes a chain of point operations, each reading the result of the one before, as one pass
+   * over the first image. Only the names in {@code materialized} get an image. If the chain is
+   * rejected, nothing is executed, so the commands can be executed one by one instead.
+   *
+   * @param commands     the names of the commands.
+   * @param args         the arguments of each command.
+   * @param materialized the names written by the chain that are used later.
+   * @throws UnsupportedOperationException if the model does not fuse commands in its current
+   *                                       mode, or a command is not found.
+   * @throws IllegalArgumentException      if the commands cannot be fused or their arguments are
+   *                                       invalid.
+   */
+  void executeFused(List<String> commands, List<ArgumentWrapper> args, Set<String> materialized);
+
+  /**
+   * Drops an image or histogram that is no longer used, e.g. an intermediate result of a script,
+   * unless it is pinned. Does nothing if the name is not held.
+   *
+   * @param name the name of the image or histogram.
+   * @return true if the entry was dropped.
+   */
+  boolean releaseIfUnpinned(String name);
+
+  /**
+   * Takes a snapshot of the entries and counters of the cache of the model, e.g. to find out what
+   * holds its memory.
+   *
+   * @return the statistics.
+   */
+  CacheStats getCacheStats();
 }
@@ -1,11 +1,54 @@
 package model;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
 /**
  * This class represents an image.
+ * <br>
+ * The pixel data is stored as one contiguous, row-major {@link Plane} per channel. A pixel at
+ * {@code (row, col)} lives at index {@code row * width + col} of every plane, and each sample is an
+ * unsigned 8-bit value in the range [0, 255]. Commands should read pixels through the indexed
+ * accessors such as {@link #getValue(int, int, int)} rather than the 2D/3D array getters, which
+ * build a fresh copy on every call.
+ * <br>
+ * Planes are immutable, so an image derived from another one can reference the source planes it
+ * leaves untouched, see {@link #Image(int, int, Plane...)}. When an image is created, channels with
+ * identical samples share one plane (e.g.: the red, green and blue channels of a gray image) and
+ * channels with a single value (e.g.: the alpha of an opaque image) only store that value.
+ * <br>
+ * The planes are allocated from a {@link Storage}, e.g. one array per plane or fixed-size tiles.
+ * Processors walk an image tile by tile with {@link #getTiles()}.
+ * <br>
+ * Data derived from the pixels, such as the {@link #getHistogram() histogram}, is computed once
+ * and kept with the image, so every consumer of the same image shares it.
  *
- * @see Image.Cache
+ * @see Cache
+ * @see Plane
  */
-public class Image {
+public class Image implements ImageView {
+
+  /**
+   * Index of the red channel.
+   */
+  public static final int RED = 0;
+
+  /**
+   * Index of the green channel.
+   */
+  public static final int GREEN = 1;
+
+  /**
+   * Index of the blue channel.
+   */
+  public static final int BLUE = 2;
+
+  /**
+   * Index of the transparency (alpha) channel.
+   */
+  public static final int ALPHA = 3;
 
   // isEmpty tracks whether an Image is instantiated as an empty object or with parameters.
   private boolean isEmpty = false;
@@ -14,10 +57,12 @@ public class Image {
   private int height;
   private int width;
   private int noOfChannels;
-  private int[][] redChannelData;
-  private int[][] greenChannelData;
-  private int[][] blueChannelData;
-  private int[][] transparency;
+  // planes[channel].get(row * width + col)
+  private Plane[] planes;
+  // Identifies the pixels of this image, null until it is hashed or derived. See getContentKey().
+  private volatile String contentKey;
+  // Computed from the pixels on first use. Images are immutable, so it never goes stale.
+  private volatile Histogram histogram;
 
   /**
    * This constructor is used to instantiate an "empty" Image object.
@@ -27,7 +72,7 @@ public class Image {
   }
 
   /**
-   * method to construct the image object.
+   * method to construct the image object. Sample values are clamped to [0, 255].
    */
 
   public Image(int[][][] arr) {
@@ -35,31 +80,90 @@ public class Image {
     width = arr[0].length;
     noOfChannels = arr[0][0].length;
 
-    redChannelData = new int[height][width];
-    greenChannelData = new int[height][width];
-    blueChannelData = new int[height][width];
-
-    if (noOfChannels == 4) {
-      transparency = new int[height][height];
-    }
+    byte[][] samples = new byte[noOfChannels][height * width];
 
+    int index = 0;
     for (int i = 0; i < height; i++) {
       for (int j = 0; j < width; j++) {
-        redChannelData[i][j] = arr[i][j][0];
-        if (noOfChannels > 1) {
-          greenChannelData[i][j] = arr[i][j][1];
+        int[] pixel = arr[i][j];
+        for (int c = 0; c < noOfChannels; c++) {
+          samples[c][index] = toSample(pixel[c]);
         }
+        index++;
+      }
+    }
 
-        if (noOfChannels > 2) {
-          blueChannelData[i][j] = arr[i][j][2];
-        }
+    planes = new Plane[noOfChannels];
+    for (int c = 0; c < noOfChannels; c++) {
+      planes[c] = new ArrayPlane(height, width, samples[c]);
+    }
+    compactPlanes(new boolean[noOfChannels]);
+  }
 
-        if (noOfChannels == 4) {
-          transparency[i][j] = arr[i][j][3];
+  /**
+   * Constructs an image kept in the given storage. The samples are written straight into planes
+   * allocated from {@code storage} and are clamped to [0, 255].
+   *
+   * @param arr     the image data as {@code int[height][width][num_channels]}.
+   * @param storage the storage to keep the image in.
+   */
+  public Image(int[][][] arr, Storage storage) {
+    height = arr.length;
+    width = arr[0].length;
+    noOfChannels = arr[0][0].length;
 
+    planes = new Plane[noOfChannels];
+    for (int c = 0; c < noOfChannels; c++) {
+      PlaneWriter writer = new PlaneWriter(height, width, storage);
+      for (int i = 0; i < height; i++) {
+        for (int j = 0; j < width; j++) {
+          writer.set(i, j, arr[i][j][c]);
         }
       }
+      planes[c] = writer.toPlane();
     }
+    compactPlanes(new boolean[noOfChannels]);
+  }
+
+  /**
+   * Constructs an image from existing planes, one per channel. The planes are shared, not copied,
+   * so images derived from another image can reference the source planes they leave unchanged.
+   *
+   * @param height the height of the image.
+   * @param width  the width of the image.
+   * @param planes the planes in channel order (red, green, blue and optionally transparency).
+   * @throws IllegalArgumentException if a plane does not match the image dimensions.
+   */
+  public Image(int height, int width, Plane... planes) {
+    this(height, width, planes, new boolean[planes.length]);
+  }
+
+  /**
+   * Constructs an image from existing planes, skipping the compaction of the planes that are
+   * known to be compact already, e.g. planes of another image left unchanged by an
+   * {@link ImageBuilder}.
+   *
+   * @param height    the height of the image.
+   * @param width     the width of the image.
+   * @param planes    the planes in channel order.
+   * @param compacted whether each plane is already compact: a {@link ConstantPlane} if uniform,
+   *                  and the same plane as any other compacted plane with the same samples.
+   * @throws IllegalArgumentException if a plane does not match the image dimensions.
+   */
+  Image(int height, int width, Plane[] planes, boolean[] compacted) {
+    if (planes.length == 0) {
+      throw new IllegalArgumentException("An image needs at least one plane.");
+    }
+    for (Plane plane : planes) {
+      if (plane.getHeight() != height || plane.getWidth() != width) {
+        throw new IllegalArgumentException("Plane size does not match image dimensions.");
+      }
+    }
+    this.height = height;
+    this.width = width;
+    this.noOfChannels = planes.length;
+    this.planes = planes.clone();
+    compactPlanes(compacted);
   }
 
   /**
@@ -68,6 +172,7 @@ public class Image {
    * @return int array.
    */
 
+  @Override
   public int getHeight() {
     return height;
   }
@@ -78,6 +183,7 @@ public class Image {
    * @return int array.
    */
 
+  @Override
   public int getWidth() {
     return width;
   }
@@ -88,6 +194,7 @@ public class Image {
    * @return int array.
    */
 
+  @Override
   public int getNoOfChannels() {
     return noOfChannels;
   }
@@ -102,17 +209,243 @@ public class Image {
   }
 
   /**
-   * method to get red channel data.
+   * Gets the index of a pixel in a channel plane.
+   *
+   * @param row the row of the pixel.
+   * @param col the column of the pixel.
+   * @return {@code row * width + col}.
+   */
+  public int indexOf(int row, int col) {
+    return row * width + col;
+  }
+
+  /**
+   * Gets a sample of a channel by its plane index.
+   *
+   * @param channel the channel, e.g. {@link #RED}.
+   * @param index   the plane index, see {@link #indexOf(int, int)}.
+   * @return the sample value in [0, 255].
+   */
+  public int getValue(int channel, int index) {
+    return planes[channel].get(index);
+  }
+
+  /**
+   * Gets a sample of a channel at a pixel position.
+   *
+   * @param channel the channel, e.g. {@link #RED}.
+   * @param row     the row of the pixel.
+   * @param col     the column of the pixel.
+   * @return the sample value in [0, 255].
+   */
+  @Override
+  public int getValue(int channel, int row, int col) {
+    return planes[channel].get(row, col);
+  }
+
+  /**
+   * Gets a sample of a channel at a pixel position with full precision. For images in
+   * {@link Storage#FLOAT} this is the value before quantization; otherwise it equals
+   * {@link #getValue(int, int, int)}.
+   *
+   * @param channel the channel, e.g. {@link #RED}.
+   * @param row     the row of the pixel.
+   * @param col     the column of the pixel.
+   * @return the unquantized sample value.
+   */
+  public float getFloat(int channel, int row, int col) {
+    return planes[channel].getFloat(row, col);
+  }
+
+  /**
+   * Gets the plane of a channel. The plane is immutable and can be shared with derived images.
+   *
+   * @param channel the channel, e.g. {@link #RED}.
+   * @return the plane of {@code channel}.
+   */
+  public Plane getPlane(int channel) {
+    return planes[channel];
+  }
+
+  /**
+   * Gets the storage the planes of this image are kept in.
+   *
+   * @return the storage of the first plane.
+   */
+  public Storage getStorage() {
+    return planes[0].getStorage();
+  }
+
+  /**
+   * Gets the number of bytes of memory held by the planes of this image. A plane shared by several
+   * channels is counted once.
+   *
+   * @return the size of the image in bytes.
+   */
+  public long getSizeInBytes() {
+    long size = 0;
+    for (int c = 0; c < noOfChannels; c++) {
+      if (indexOfPlane(planes[c], c) < 0) {
+        size += planes[c].getSizeInBytes();
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Gets the histogram of the red, green and blue channels of this image. It is computed on the
+   * first call and shared by later calls.
+   *
+   * @return the histogram.
+   */
+  public Histogram getHistogram() {
+    Histogram result = histogram;
+    if (result == null) {
+      result = new Histogram(this);
+      histogram = result;
+    }
+    return result;
+  }
+
+  /**
+   * Gets a key that identifies the pixels of this image: the SHA-256 digest of its size, storage
+   * and samples, or of the key of the command that produced it (see {@link Memo}). Images with
+   * different pixels only get the same key if SHA-256 collides. The samples are only hashed for
+   * images that come from outside, e.g. loaded from a file, once per image.
+   *
+   * @return the content key, as 64 hexadecimal digits.
+   */
+  public String getContentKey() {
+    String key = contentKey;
+    if (key == null) {
+      MessageDigest digest = newDigest();
+      digest.update(ByteBuffer.allocate(4 * Integer.BYTES).putInt(height).putInt(width)
+                              .putInt(noOfChannels).putInt(getStorage().ordinal()).array());
+      ByteBuffer row = ByteBuffer.allocate(Math.max(1, width) * Float.BYTES);
+      for (int c = 0; c < noOfChannels; c++) {
+        if (planes[c] instanceof ConstantPlane) {
+          digest.update((byte) 0);
+          digest.update(ByteBuffer.allocate(Integer.BYTES)
+                                  .putInt(((ConstantPlane) planes[c]).getValue()).array());
+          continue;
+        }
+        digest.update((byte) 1);
+        for (int i = 0; i < height; i++) {
+          row.clear();
+          for (int j = 0; j < width; j++) {
+            row.putFloat(planes[c].getFloat(i, j));
+          }
+          digest.update(row.array(), 0, row.position());
+        }
+      }
+      contentKey = key = toHex(digest.digest());
+    }
+    return key;
+  }
+
+  /**
+   * Gives this image a content key derived from the key of the command that produced it, unless it
+   * already has one.
+   *
+   * @param derivation the key of the command and the position of this image among its results.
+   */
+  void deriveContentKey(String derivation) {
+    if (contentKey == null) {
+      contentKey = toHex(newDigest().digest(derivation.getBytes(StandardCharsets.UTF_8)));
+    }
+  }
+
+  /**
+   * Copies this image into another storage. If the image is already kept in {@code storage}, it is
+   * returned as is.
+   *
+   * @param storage the storage to copy into.
+   * @return an image with the same pixels kept in {@code storage}.
+   */
+  public Image toStorage(Storage storage) {
+    if (getStorage() == storage) {
+      return this;
+    }
+    Plane[] copies = new Plane[noOfChannels];
+    for (int c = 0; c < noOfChannels; c++) {
+      int shared = indexOfPlane(planes[c], c);
+      if (shared >= 0) {
+        copies[c] = copies[shared];
+        continue;
+      }
+      if (planes[c] instanceof ConstantPlane) {
+        int value = ((ConstantPlane) planes[c]).getValue();
+        copies[c] = new ConstantPlane(height, width, value, storage);
+        continue;
+      }
+      PlaneWriter writer = new PlaneWriter(height, width, storage);
+      for (Tile tile : getTiles()) {
+        for (int i = tile.getRow(); i < tile.getEndRow(); i++) {
+          for (int j = tile.getCol(); j < tile.getEndCol(); j++) {
+            writer.setFloat(i, j, planes[c].getFloat(i, j));
+          }
+        }
+      }
+      copies[c] = writer.toPlane();
+    }
+    return new Image(height, width, copies);
+  }
+
+  /**
+   * Covers this image with tiles of {@link Tile#SIZE}, row by row. For a {@link Storage#TILED}
+   * image the tiles match the storage layout.
+   *
+   * @return the tiles of this image.
+   */
+  public Iterable<Tile> getTiles() {
+    return Tile.grid(height, width);
+  }
+
+  /**
+   * Gets the red sample of a pixel.
+   *
+   * @param row the row of the pixel.
+   * @param col the column of the pixel.
+   * @return the red value.
+   */
+  public int getRed(int row, int col) {
+    return getValue(RED, row, col);
+  }
+
+  /**
+   * Gets the green sample of a pixel.
+   *
+   * @param row the row of the pixel.
+   * @param col the column of the pixel.
+   * @return the green value.
+   */
+  public int getGreen(int row, int col) {
+    return getValue(GREEN, row, col);
+  }
+
+  /**
+   * Gets the blue sample of a pixel.
+   *
+   * @param row the row of the pixel.
+   * @param col the column of the pixel.
+   * @return the blue value.
+   */
+  public int getBlue(int row, int col) {
+    return getValue(BLUE, row, col);
+  }
+
+  /**
+   * method to get red channel data. The returned array is a copy.
    *
    * @return int array.
    */
 
   public int[][] getRedChannelData() {
-    return redChannelData;
+    return getChannelData(RED);
   }
 
   /**
-   * method to get green channel data.
+   * method to get green channel data. The returned array is a copy.
    *
    * @return int array.
    */
@@ -121,11 +454,11 @@ public class Image {
     if (noOfChannels < 2) {
       return null;
     }
-    return greenChannelData;
+    return getChannelData(GREEN);
   }
 
   /**
-   * method to get blue channel data.
+   * method to get blue channel data. The returned array is a copy.
    *
    * @return int array.
    */
@@ -134,11 +467,11 @@ public class Image {
     if (noOfChannels < 3) {
       return null;
     }
-    return blueChannelData;
+    return getChannelData(BLUE);
   }
 
   /**
-   * method to get transparency.
+   * method to get transparency. The returned array is a copy.
    *
    * @return int array.
    */
@@ -147,7 +480,7 @@ public class Image {
     if (noOfChannels < 4) {
       return null;
     }
-    return transparency;
+    return getChannelData(ALPHA);
   }
 
   /**
@@ -158,17 +491,9 @@ public class Image {
 
   public int[] getPixelData(int i, int j) {
     int[] arr = new int[noOfChannels];
-    if (noOfChannels == 3) {
-      arr[0] = redChannelData[i][j];
-      arr[1] = greenChannelData[i][j];
-      arr[2] = blueChannelData[i][j];
-    }
-    else if (noOfChannels == 4) {
-
-      arr[0] = redChannelData[i][j];
-      arr[1] = greenChannelData[i][j];
-      arr[2] = blueChannelData[i][j];
-      arr[3] = transparency[i][j];
+    int index = indexOf(i, j);
+    for (int c = 0; c < noOfChannels; c++) {
+      arr[c] = getValue(c, index);
     }
     return arr;
   }
@@ -179,37 +504,166 @@ public class Image {
    * @return 3d int array.
    */
 
+  @Override
   public int[][][] getImageArray() {
     int[][][] imageArr = new int[this.height][this.width][this.noOfChannels];
+    int index = 0;
     for (int i = 0; i < this.height; i++) {
       for (int j = 0; j < this.width; j++) {
-        imageArr[i][j][0] = redChannelData[i][j];
+        for (int c = 0; c < noOfChannels; c++) {
+          imageArr[i][j][c] = getValue(c, index);
+        }
+        index++;
       }
     }
+    return imageArr;
+  }
 
-    if (noOfChannels > 1) {
-      for (int i = 0; i < this.height; i++) {
-        for (int j = 0; j < this.width; j++) {
-          imageArr[i][j][1] = greenChannelData[i][j];
+  /**
+   * Copies one channel plane into a 2D array.
+   *
+   * @param channel the channel to copy.
+   * @return int array of {@code [height][width]}.
+   */
+  private int[][] getChannelData(int channel) {
+    int[][] data = new int[height][width];
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        data[i][j] = getValue(channel, i, j);
+      }
+    }
+    return data;
+  }
+
+  /**
+   * Replaces planes with a single value by a {@link ConstantPlane}, and lets channels with the same
+   * samples share one plane. Planes that are compacted already are not scanned again, and neither
+   * are pairs of them, apart from comparing constant planes by value.
+   *
+   * @param compacted whether each plane is already compact, see
+   *                  {@link #Image(int, int, Plane[], boolean[])}.
+   */
+  private void compactPlanes(boolean[] compacted) {
+    if (height == 0 || width == 0) {
+      // No samples to compare.
+      return;
+    }
+    for (int c = 0; c < noOfChannels; c++) {
+      Plane plane = planes[c];
+      if (!compacted[c] && !(plane instanceof ConstantPlane)) {
+        int value = plane.get(0, 0);
+        if (hasOnly(plane, value)) {
+          plane = new ConstantPlane(height, width, value, plane.getStorage());
+        }
+      }
+      planes[c] = plane;
+      // Two compacted planes that are not constant are known to differ unless they are shared.
+      boolean distinct = compacted[c] && !(plane instanceof ConstantPlane);
+      for (int earlier = 0; earlier < c; earlier++) {
+        if (!(distinct && compacted[earlier]) && sameSamples(planes[earlier], plane)) {
+          planes[c] = planes[earlier];
+          break;
         }
       }
     }
+  }
 
-    if (noOfChannels > 2) {
-      for (int i = 0; i < this.height; i++) {
-        for (int j = 0; j < this.width; j++) {
-          imageArr[i][j][2] = blueChannelData[i][j];
+  /**
+   * Finds a channel before {@code channel} that has exactly the given plane.
+   *
+   * @param plane   the plane.
+   * @param channel the channel of the plane.
+   * @return the first channel sharing the plane, or -1 if there is none.
+   */
+  private int indexOfPlane(Plane plane, int channel) {
+    for (int c = 0; c < channel; c++) {
+      if (planes[c] == plane) {
+        return c;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Checks whether every sample of a plane has the given value. Stops at the first other value.
+   *
+   * @param plane the plane.
+   * @param value the value.
+   * @return true if the plane is uniform.
+   */
+  private static boolean hasOnly(Plane plane, int value) {
+    for (int i = 0; i < plane.getHeight(); i++) {
+      for (int j = 0; j < plane.getWidth(); j++) {
+        if (plane.getFloat(i, j) != value) {
+          return false;
         }
       }
     }
-    if (noOfChannels == 4) {
-      for (int i = 0; i < this.height; i++) {
-        for (int j = 0; j < this.width; j++) {
-          imageArr[i][j][3] = transparency[i][j];
+    return true;
+  }
+
+  /**
+   * Checks whether two planes of the same size hold the same samples. Stops at the first
+   * difference.
+   *
+   * @param a a plane.
+   * @param b another plane.
+   * @return true if the samples are equal.
+   */
+  private static boolean sameSamples(Plane a, Plane b) {
+    if (a == b) {
+      return true;
+    }
+    if (a instanceof ConstantPlane || b instanceof ConstantPlane) {
+      // Constant planes are never left in place of a uniform plane, see compactPlanes().
+      return a instanceof ConstantPlane && b instanceof ConstantPlane
+             && ((ConstantPlane) a).getValue() == ((ConstantPlane) b).getValue();
+    }
+    for (int i = 0; i < a.getHeight(); i++) {
+      for (int j = 0; j < a.getWidth(); j++) {
+        if (a.getFloat(i, j) != b.getFloat(i, j)) {
+          return false;
         }
       }
     }
+    return true;
+  }
 
-    return imageArr;
+  /**
+   * Creates a SHA-256 digest, as used for content keys and the files of a {@link ResultStore}.
+   *
+   * @return the digest.
+   * @throws InternalError if SHA-256 is not available.
+   */
+  static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new InternalError("Internal Error: SHA-256 is not available.");
+    }
+  }
+
+  /**
+   * Formats a digest as hexadecimal digits.
+   *
+   * @param digest the bytes of the digest.
+   * @return two lowercase digits per byte.
+   */
+  static String toHex(byte[] digest) {
+    StringBuilder hex = new StringBuilder(digest.length * 2);
+    for (byte b : digest) {
+      hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return hex.toString();
+  }
+
+  /**
+   * Converts an int value to an unsigned 8-bit sample, clamping it to [0, 255].
+   *
+   * @param value the value.
+   * @return the byte sample.
+   */
+  private static byte toSample(int value) {
+    return (byte) Math.min(255, Math.max(0, value));
   }
 }
@@ -0,0 +1,200 @@
+package model;
+
+/**
+ * A builder used by commands to write their result straight into the planes of a new
+ * {@link Image}, with one {@link PlaneWriter} per channel. Nothing is written to an intermediate
+ * array and the planes are not copied again when the image is built.
+ * <br>
+ * A builder either starts empty (all samples are 0), or from the planes of a source image with
+ * copy-on-write semantics, so channels that are never written are shared with the source. Planes
+ * can also be shared explicitly with {@link #setPlane(int, Plane)}.
+ * <br>
+ * Once {@link #build()} is called, the builder cannot be used anymore.
+ * <h3>Usage:</h3>
+ * <pre>
+ *   ImageBuilder builder = new ImageBuilder(image, 3);   // Starts from the RGB planes of image.
+ *   builder.set(Image.RED, row, col, 255);              // Only the red plane is copied.
+ *   Image result = builder.build();
+ * </pre>
+ */
+public class ImageBuilder {
+
+  private final int height;
+  private final int width;
+  private final PlaneWriter[] writers;
+  // Whether each channel still starts from a plane that needs no compaction, see build().
+  private final boolean[] compacted;
+  private boolean done = false;
+
+  /**
+   * Creates a builder for an empty image whose planes are allocated from {@code storage}.
+   *
+   * @param height       the height of the image.
+   * @param width        the width of the image.
+   * @param noOfChannels the number of channels.
+   * @param storage      the storage to allocate the planes from.
+   */
+  public ImageBuilder(int height, int width, int noOfChannels, Storage storage) {
+    this.height = height;
+    this.width = width;
+    this.writers = new PlaneWriter[noOfChannels];
+    this.compacted = new boolean[noOfChannels];
+    for (int c = 0; c < noOfChannels; c++) {
+      writers[c] = new PlaneWriter(height, width, storage);
+      compacted[c] = true;
+    }
+  }
+
+  /**
+   * Creates a builder that starts with the first {@code noOfChannels} planes of {@code source}.
+   * The planes are copied lazily, in the storage of the source, on the first write.
+   *
+   * @param source       the image to start from.
+   * @param noOfChannels the number of channels, at most the channels of {@code source}.
+   * @throws IllegalArgumentException if the source has fewer channels.
+   */
+  public ImageBuilder(Image source, int noOfChannels) {
+    if (noOfChannels > source.getNoOfChannels()) {
+      throw new IllegalArgumentException("Source image has only " + source.getNoOfChannels()
+                                         + " channels.");
+    }
+    this.height = source.getHeight();
+    this.width = source.getWidth();
+    this.writers = new PlaneWriter[noOfChannels];
+    this.compacted = new boolean[noOfChannels];
+    for (int c = 0; c < noOfChannels; c++) {
+      writers[c] = new PlaneWriter(source.getPlane(c));
+      compacted[c] = true;
+    }
+  }
+
+  /**
+   * Gets the height of the image being built.
+   *
+   * @return the number of rows.
+   */
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Gets the width of the image being built.
+   *
+   * @return the number of columns.
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Gets the number of channels of the image being built.
+   *
+   * @return the number of channels.
+   */
+  public int getNoOfChannels() {
+    return writers.length;
+  }
+
+  /**
+   * Gets a sample of the image being built.
+   *
+   * @param channel the channel, e.g. {@link Image#RED}.
+   * @param row     the row of the pixel.
+   * @param col     the column of the pixel.
+   * @return the sample value in [0, 255].
+   */
+  public int get(int channel, int row, int col) {
+    return writers[channel].get(row, col);
+  }
+
+  /**
+   * Gets a sample of the image being built with full precision.
+   *
+   * @param channel the channel, e.g. {@link Image#RED}.
+   * @param row     the row of the pixel.
+   * @param col     the column of the pixel.
+   * @return the unquantized sample value, see {@link Plane#getFloat(int, int)}.
+   */
+  public float getFloat(int channel, int row, int col) {
+    return writers[channel].getFloat(row, col);
+  }
+
+  /**
+   * Sets a sample. The value is clamped to [0, 255].
+   *
+   * @param channel the channel, e.g. {@link Image#RED}.
+   * @param row     the row of the pixel.
+   * @param col     the column of the pixel.
+   * @param value   the value.
+   * @throws IllegalStateException if the image has already been built.
+   */
+  public void set(int channel, int row, int col, int value) {
+    writers[channel].set(row, col, value);
+  }
+
+  /**
+   * Sets a sample with full precision, see {@link PlaneWriter#setFloat(int, int, double)}.
+   *
+   * @param channel the channel, e.g. {@link Image#RED}.
+   * @param row     the row of the pixel.
+   * @param col     the column of the pixel.
+   * @param value   the unquantized value.
+   * @throws IllegalStateException if the image has already been built.
+   */
+  public void setFloat(int channel, int row, int col, double value) {
+    writers[channel].setFloat(row, col, value);
+  }
+
+  /**
+   * Allocates the planes of all channels, see {@link PlaneWriter#prepare()}. Call this before
+   * writing different pixels from several threads, e.g. with {@link RowBands}.
+   *
+   * @throws IllegalStateException if the image has already been built.
+   */
+  public void prepare() {
+    for (PlaneWriter writer : writers) {
+      writer.prepare();
+    }
+  }
+
+  /**
+   * Uses an existing plane for a channel. The plane is shared, not copied, and replaces anything
+   * written to the channel so far.
+   *
+   * @param channel the channel, e.g. {@link Image#RED}.
+   * @param plane   the plane.
+   * @throws IllegalArgumentException if the plane does not match the image dimensions.
+   * @throws IllegalStateException    if the image has already been built.
+   */
+  public void setPlane(int channel, Plane plane) {
+    if (done) {
+      throw new IllegalStateException("Image has already been built.");
+    }
+    if (plane.getHeight() != height || plane.getWidth() != width) {
+      throw new IllegalArgumentException("Plane size does not match image dimensions.");
+    }
+    writers[channel] = new PlaneWriter(plane);
+    compacted[channel] = false;
+  }
+
+  /**
+   * Builds the image from the written planes. Only the written planes and the planes set with
+   * {@link #setPlane(int, Plane)} are checked for uniform or shared samples: the planes left
+   * unwritten are the empty plane or the planes of the source image, which already are compact.
+   *
+   * @return the image.
+   * @throws IllegalStateException if the image has already been built.
+   */
+  public Image build() {
+    if (done) {
+      throw new IllegalStateException("Image has already been built.");
+    }
+    done = true;
+    Plane[] planes = new Plane[writers.length];
+    for (int c = 0; c < writers.length; c++) {
+      compacted[c] = compacted[c] && !writers[c].isWritten();
+      planes[c] = writers[c].toPlane();
+    }
+    return new Image(height, width, planes, compacted);
+  }
+}
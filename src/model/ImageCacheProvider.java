@@ -29,6 +29,21 @@ public interface ImageCacheProvider {
    */
   int[][][] getImage(String name) throws NoSuchElementException;
 
+  /**
+   * Retrieves a read-only view of the image stored under the specified name. Unlike
+   * {@link #getImage(String)}, implementations backed by a cache of {@link Image} objects return
+   * the cached image itself, so the pixels can be streamed without allocating a copy.
+   * <br>
+   * The default implementation wraps the array returned by {@link #getImage(String)}.
+   *
+   * @param name the name of the image to retrieve
+   * @return a view of the image data
+   * @throws NoSuchElementException if the specified image is not found in the cache
+   */
+  default ImageView getImageView(String name) throws NoSuchElementException {
+    return ImageView.of(getImage(name));
+  }
+
   /**
    * Stores an image in the cache with the specified name. This method updates the status flag to
    * {@code true} once the image is successfully set.
@@ -38,4 +53,31 @@ public interface ImageCacheProvider {
    * @param name  the name under which the image will be stored
    */
   void setImage(int[][][] image, String name);
+
+  /**
+   * Stores an image in the cache with the specified name, keeping its pixels in the given
+   * {@link Storage}. The default implementation ignores the storage, for providers that do not keep
+   * {@link Image} objects.
+   *
+   * @param image   a 3D array representing the image data in the format
+   *                {@code int[width][height][num_channels]}
+   * @param name    the name under which the image will be stored
+   * @param storage the storage to keep the image in
+   */
+  default void setImage(int[][][] image, String name, Storage storage) {
+    setImage(image, name);
+  }
+
+  /**
+   * Stores an image that is already built, e.g. decoded straight into the planes of its
+   * {@link Storage} by an {@link ImageBuilder}, so its pixels are never copied through an array.
+   * The default implementation copies the image into an array, for providers that do not keep
+   * {@link Image} objects.
+   *
+   * @param image the image
+   * @param name  the name under which the image will be stored
+   */
+  default void setImage(Image image, String name) {
+    setImage(image.getImageArray(), name);
+  }
 }
@@ -0,0 +1,109 @@
+package model;
+
+/**
+ * A read-only view of the pixels of an image. A view lets callers outside the model, such as the
+ * image handlers and the GUI, stream pixels straight out of a cached {@link Image} without copying
+ * it into a 3D array first.
+ * <br>
+ * Samples are addressed by channel, row and column, where channel {@code 0} is red, {@code 1} is
+ * green, {@code 2} is blue and {@code 3}, if present, is transparency.
+ * <h3>Usage:</h3>
+ * <pre>
+ *   ImageView view = model.getImageView("koala");
+ *   int red = view.getValue(0, row, col);
+ * </pre>
+ *
+ * @see ImageCacheProvider#getImageView(String)
+ */
+public interface ImageView {
+
+  /**
+   * Gets the height of the image.
+   *
+   * @return the number of rows.
+   */
+  int getHeight();
+
+  /**
+   * Gets the width of the image.
+   *
+   * @return the number of columns.
+   */
+  int getWidth();
+
+  /**
+   * Gets the number of channels of the image.
+   *
+   * @return 3 for RGB and 4 for RGBA.
+   */
+  int getNoOfChannels();
+
+  /**
+   * Gets a sample of a channel at a pixel position.
+   *
+   * @param channel the channel.
+   * @param row     the row of the pixel.
+   * @param col     the column of the pixel.
+   * @return the sample value in [0, 255].
+   */
+  int getValue(int channel, int row, int col);
+
+  /**
+   * Gets a pixel packed as {@code 0xRRGGBB}.
+   *
+   * @param row the row of the pixel.
+   * @param col the column of the pixel.
+   * @return the packed RGB value.
+   */
+  default int getRGB(int row, int col) {
+    return (getValue(0, row, col) << 16) | (getValue(1, row, col) << 8) | getValue(2, row, col);
+  }
+
+  /**
+   * Copies the viewed pixels into a new 3D array of {@code int[height][width][num_channels]}.
+   *
+   * @return a 3D array representing the image data.
+   */
+  default int[][][] getImageArray() {
+    int[][][] imageArr = new int[getHeight()][getWidth()][getNoOfChannels()];
+    for (int i = 0; i < getHeight(); i++) {
+      for (int j = 0; j < getWidth(); j++) {
+        for (int c = 0; c < getNoOfChannels(); c++) {
+          imageArr[i][j][c] = getValue(c, i, j);
+        }
+      }
+    }
+    return imageArr;
+  }
+
+  /**
+   * Wraps a 3D array of {@code int[height][width][num_channels]} in a view. The array is not
+   * copied.
+   *
+   * @param pixels the image data.
+   * @return a view over {@code pixels}.
+   */
+  static ImageView of(int[][][] pixels) {
+    return new ImageView() {
+      @Override
+      public int getHeight() {
+        return pixels.length;
+      }
+
+      @Override
+      public int getWidth() {
+        return pixels[0].length;
+      }
+
+      @Override
+      public int getNoOfChannels() {
+        return pixels[0][0].length;
+      }
+
+      @Override
+      public int getValue(int channel, int row, int col) {
+        return pixels[row][col][channel];
+      }
+    };
+  }
+}
@@ -0,0 +1,78 @@
+package model;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A {@link Plane} backed by a raw file in the scratch directory (see
+ * {@link Storage#setScratchDirectory(Path)}) that is memory-mapped into the process. The operating
+ * system pages the samples in and out as they are accessed, so an image can be larger than the
+ * physical memory. The scratch file is removed as soon as it is mapped where the platform allows
+ * it, and otherwise when the JVM exits.
+ */
+class MappedPlane extends WritablePlane {
+
+  private final MappedByteBuffer samples;
+
+  /**
+   * Creates an empty memory-mapped plane.
+   *
+   * @param height the number of rows.
+   * @param width  the number of columns.
+   * @throws IllegalStateException if the scratch file cannot be created or mapped.
+   */
+  MappedPlane(int height, int width) {
+    super(height, width);
+    try {
+      Path file = Files.createTempFile(Storage.getScratchDirectory(), "plane", ".raw");
+      try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw");
+           FileChannel channel = raf.getChannel()) {
+        raf.setLength((long) height * width);
+        // The mapping stays valid after the channel is closed.
+        samples = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) height * width);
+      }
+      try {
+        Files.delete(file);
+      } catch (IOException e) {
+        file.toFile().deleteOnExit();
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not map scratch file: " + e.getMessage());
+    }
+  }
+
+  @Override
+  public int get(int index) {
+    return samples.get(index) & 0xFF;
+  }
+
+  @Override
+  public int get(int row, int col) {
+    return samples.get(row * width + col) & 0xFF;
+  }
+
+  @Override
+  public long getSizeInBytes() {
+    // Resident pages belong to the page cache and are reclaimed by the operating system.
+    return 0;
+  }
+
+  @Override
+  public Storage getStorage() {
+    return Storage.MAPPED;
+  }
+
+  @Override
+  void set(int index, int sample) {
+    samples.put(index, (byte) sample);
+  }
+
+  @Override
+  void set(int row, int col, int sample) {
+    samples.put(row * width + col, (byte) sample);
+  }
+}
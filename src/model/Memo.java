@@ -0,0 +1,285 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Remembers the results of commands by content-addressed keys, so running the same command with the
+ * same arguments on the same pixels again returns the earlier results instead of recomputing them.
+ * <br>
+ * A key is made of the command name, its arguments other than the names it writes, and the content
+ * keys of its input images (see {@link Image#getContentKey()}). The images a command produces are
+ * given a content key derived from the key of the command, so only images that come from outside,
+ * e.g. loaded from a file, ever have their pixels hashed.
+ * <br>
+ * The most recently used results are remembered, up to {@value #LIMIT} bytes or the memory budget
+ * of the cache if it is smaller. They count towards the budget of the cache like its entries, where
+ * planes shared with cached images are only counted once, and when the cache is over its budget,
+ * the oldest results holding memory of their own are forgotten before entries are spilled. With a
+ * {@link ResultStore}, results are also kept on disk across runs and looked up there when they are
+ * not remembered in memory.
+ * <h3>Usage:</h3>
+ * <pre>
+ *   String key = Memo.key("blur", List.of("#" + koala.getContentKey(), "out"));
+ *   List&lt;Object&gt; results = memo.recall(key);
+ *   if (results == null) {
+ *     results = List.of(blur(koala));
+ *     memo.remember(key, results);
+ *   }
+ * </pre>
+ */
+public final class Memo {
+
+  /**
+   * The most memory, in bytes, the remembered results hold.
+   */
+  public static final long LIMIT = 256L * 1024 * 1024;
+
+  // The results by key, from least to most recently used. Guarded by itself, like size.
+  private final Map<String, List<Object>> results = new LinkedHashMap<>(16, 0.75f, true);
+  private final long limit;
+  private final Cache owner;
+  private long size = 0;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private volatile ResultStore store;
+
+  /**
+   * Creates an empty memo.
+   *
+   * @param limit the most memory the results hold, in bytes.
+   * @param owner the cache the memory of the results is counted in.
+   */
+  Memo(long limit, Cache owner) {
+    this.limit = limit;
+    this.owner = owner;
+  }
+
+  /**
+   * Builds the key of a command.
+   *
+   * @param command   the name of the command.
+   * @param arguments the normalized arguments, with inputs replaced by their content keys.
+   * @return the key.
+   */
+  public static String key(String command, List<String> arguments) {
+    return command + " " + String.join(" ", arguments);
+  }
+
+  /**
+   * Gets the results remembered for a key and counts a hit or a miss.
+   *
+   * @param key the key of the command.
+   * @return the images and histograms written by the command in order, or null on a miss.
+   */
+  public List<Object> recall(String key) {
+    List<Object> values;
+    synchronized (results) {
+      values = results.get(key);
+    }
+    ResultStore resultStore = this.store;
+    if (values == null && resultStore != null) {
+      values = resultStore.load(key);
+      if (values != null) {
+        remember(key, values, false);
+      }
+    }
+    (values == null ? misses : hits).incrementAndGet();
+    return values;
+  }
+
+  /**
+   * Remembers the results of a command. Images without a content key are given one derived from
+   * the key of the command and their position.
+   *
+   * @param key    the key of the command.
+   * @param values the images and histograms written by the command in order.
+   */
+  public void remember(String key, List<Object> values) {
+    remember(key, values, true);
+  }
+
+  /**
+   * Keeps results with the key of the command that produced them.
+   *
+   * @param key    the key of the command.
+   * @param values the images and histograms written by the command in order.
+   * @param store  whether to also write them to the result store, if there is one.
+   */
+  private void remember(String key, List<Object> values, boolean store) {
+    for (int i = 0; i < values.size(); i++) {
+      if (values.get(i) instanceof Image) {
+        ((Image) values.get(i)).deriveContentKey(key + " #" + i);
+      }
+    }
+    List<Object> remembered = new ArrayList<>(values);
+    synchronized (results) {
+      owner.retainAll(remembered);
+      size += sizeOf(remembered);
+      forget(results.put(key, remembered));
+      while (size > limit) {
+        forget(results.remove(results.keySet().iterator().next()));
+      }
+    }
+    ResultStore resultStore = this.store;
+    if (store && resultStore != null) {
+      resultStore.store(key, values);
+    }
+  }
+
+  /**
+   * Sets the store to keep results in across runs.
+   *
+   * @param store the result store, or null to only remember results in memory.
+   */
+  public void setStore(ResultStore store) {
+    this.store = store;
+  }
+
+  /**
+   * Gets the store results are kept in across runs.
+   *
+   * @return the result store, or null if there is none.
+   */
+  public ResultStore getStore() {
+    return store;
+  }
+
+  /**
+   * Forgets all remembered results, in memory and in the result store.
+   */
+  public void purge() {
+    synchronized (results) {
+      results.values().forEach(this::forget);
+      results.clear();
+    }
+    ResultStore resultStore = this.store;
+    if (resultStore != null) {
+      resultStore.purge();
+    }
+  }
+
+  /**
+   * Forgets the least recently used result that holds memory of its own.
+   *
+   * @param holdsMemory whether forgetting a result frees memory.
+   * @return false if no result holds memory of its own.
+   */
+  boolean forgetEldest(Predicate<List<Object>> holdsMemory) {
+    synchronized (results) {
+      Iterator<List<Object>> iterator = results.values().iterator();
+      while (iterator.hasNext()) {
+        List<Object> values = iterator.next();
+        if (holdsMemory.test(values)) {
+          iterator.remove();
+          forget(values);
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Forgets the results sharing a plane with an image, so evicting or compressing the image frees
+   * its memory.
+   *
+   * @param image the image.
+   */
+  void forgetSharing(Image image) {
+    synchronized (results) {
+      Iterator<List<Object>> iterator = results.values().iterator();
+      while (iterator.hasNext()) {
+        List<Object> values = iterator.next();
+        if (sharesPlane(values, image)) {
+          iterator.remove();
+          forget(values);
+        }
+      }
+    }
+  }
+
+  /**
+   * Gets the memory held by the remembered results, counting every result on its own.
+   *
+   * @return the size in bytes.
+   */
+  public long getSize() {
+    synchronized (results) {
+      return size;
+    }
+  }
+
+  /**
+   * Gets the number of lookups that found remembered results.
+   *
+   * @return the number of hits.
+   */
+  public long getHits() {
+    return hits.get();
+  }
+
+  /**
+   * Gets the number of lookups that found nothing.
+   *
+   * @return the number of misses.
+   */
+  public long getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * Releases a result that was removed from the map. Guarded by the map.
+   *
+   * @param values the result, or null.
+   */
+  private void forget(List<Object> values) {
+    if (values != null) {
+      size -= sizeOf(values);
+      owner.releaseAll(values);
+    }
+  }
+
+  /**
+   * Gets the memory held by a result on its own.
+   *
+   * @param values the images and histograms of the result.
+   * @return the size in bytes.
+   */
+  private static long sizeOf(List<Object> values) {
+    long bytes = 0;
+    for (Object value : values) {
+      bytes += Cache.sizeOf(value);
+    }
+    return bytes;
+  }
+
+  /**
+   * Checks if a result holds a plane of an image.
+   *
+   * @param values the images and histograms of the result.
+   * @param image  the image.
+   * @return true if an image of the result shares a plane with {@code image}.
+   */
+  private static boolean sharesPlane(List<Object> values, Image image) {
+    for (Object value : values) {
+      if (value instanceof Image) {
+        Image other = (Image) value;
+        for (int c = 0; c < other.getNoOfChannels(); c++) {
+          for (int d = 0; d < image.getNoOfChannels(); d++) {
+            if (other.getPlane(c) == image.getPlane(d)) {
+              return true;
+            }
+          }
+        }
+      }
+    }
+    return false;
+  }
+}
@@ -1,7 +1,10 @@
 package model;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
 import model.command.CommandFactory;
 import utils.arguments.ArgumentWrapper;
 import utils.arguments.Signature;
@@ -13,6 +16,17 @@ import utils.arguments.Signature;
  * interacts with an internal image cache via {@link Cache}, and maintains an internal status flag
  * to track the success of operations.
  * <p>
+ * The model keeps no state between commands other than the cache, which is thread-safe, so
+ * commands on different aliases can be executed from several threads at once.
+ * </p>
+ * <p>
+ * By default commands are executed eagerly. In lazy mode (see {@link #setLazy(boolean)}) a command
+ * is only recorded as a {@link Recipe} and executed the first time one of its results is read, so
+ * results that are overwritten before they are read are never computed. The recipes form a graph
+ * over the aliases that is planned when a result is read: chains of per-pixel commands run as one
+ * pass, and independent inputs of a command are computed concurrently.
+ * </p>
+ * <p>
  * All interactions between the controller and the underlying model must run through this class,
  * ensuring that the controller only accesses the model through this entry point.
  * </p>
@@ -29,6 +43,9 @@ import utils.arguments.Signature;
  *   // Gets an image from the model's Image.Cache
  *   int[][][] image = model.getImage("koala");
  *
+ *   // Gets a read-only view of a cached image without copying it.
+ *   ImageView view = model.getImageView("koala");
+ *
  *   // Loads an Image into the cache.
  *   model.setImage(image, 'rabbit');
  * </pre>
@@ -37,8 +54,56 @@ import utils.arguments.Signature;
  */
 public class Model implements IModel {
 
-  private CommandFactory commandClass = CommandFactory.NONE;
-  private final Cache cache = new Cache();
+  private final Cache cache;
+  private volatile boolean lazy = false;
+
+  /**
+   * Creates a model with an unbounded cache.
+   */
+  public Model() {
+    this.cache = new Cache();
+  }
+
+  /**
+   * Creates a model whose cache evicts the least recently used images beyond a memory budget.
+   *
+   * @param cacheBudget the memory budget of the cache in bytes.
+   * @throws IllegalArgumentException if the budget is not positive.
+   */
+  public Model(long cacheBudget) {
+    this.cache = new Cache(cacheBudget);
+  }
+
+  /**
+   * Switches between executing commands right away and deferring them until their results are
+   * read. Commands executed before the switch are not affected.
+   *
+   * @param lazy true to defer commands, false to execute them eagerly.
+   */
+  public void setLazy(boolean lazy) {
+    this.lazy = lazy;
+  }
+
+  /**
+   * Compresses images in memory once they have not been used for a while, trading a
+   * decompression on their next use for a fraction of their memory.
+   *
+   * @param millis the delay in milliseconds, or {@link Long#MAX_VALUE} to never compress.
+   * @throws IllegalArgumentException if the delay is negative.
+   */
+  public void setCompressionDelay(long millis) {
+    cache.setCompressionDelay(millis);
+  }
+
+  /**
+   * Keeps the results of commands in a store on disk, so later runs on the same images load them
+   * instead of recomputing them.
+   *
+   * @param store the result store, or null to only remember results in memory.
+   */
+  public void setResultStore(ResultStore store) {
+    cache.getMemo().setStore(store);
+  }
 
   /**
    * execute method executes commands one by one.
@@ -51,8 +116,7 @@ public class Model implements IModel {
   public void execute(String command, ArgumentWrapper args) throws UnsupportedOperationException {
     for (CommandFactory c : CommandFactory.values()) {
       if (c.getCommandName().equals(command)) {
-        commandClass = c;
-        runCommand(args);
+        runCommand(c, args);
         return;
       }
     }
@@ -74,6 +138,18 @@ public class Model implements IModel {
     return cache.get(name).getImageArray();
   }
 
+  /**
+   * Gets the cached image itself as a read-only view. No pixels are copied.
+   *
+   * @param name A {@code String} which denotes the image name.
+   * @return a view of the cached image.
+   * @throws NoSuchElementException when no such image object in the cache
+   */
+  @Override
+  public ImageView getImageView(String name) throws NoSuchElementException {
+    return cache.get(name);
+  }
+
   /**
    * set an image object to the cache.
    *
@@ -87,12 +163,43 @@ public class Model implements IModel {
   }
 
   /**
-   * Executes the command associated with this model instance using the provided arguments.
+   * set an image object to the cache, kept in the given storage.
+   *
+   * @param image   the image data.
+   * @param name    A {@code String} which denotes the image name.
+   * @param storage the storage to keep the image in.
+   */
+  @Override
+  public void setImage(int[][][] image, String name, Storage storage) {
+    cache.set(name, new Image(image, storage));
+  }
+
+  /**
+   * set an image object to the cache as it is, keeping its planes in their storage.
+   *
+   * @param image the image.
+   * @param name  A {@code String} which denotes the image name.
+   */
+  @Override
+  public void setImage(Image image, String name) {
+    cache.set(name, image);
+  }
+
+  /**
+   * Executes or, in lazy mode, defers a command using the provided arguments. The command is
+   * passed in rather than kept in a field, so several threads can execute commands on the same
+   * model.
    *
-   * @param args String arguments to the command being executed.
+   * @param command the command to execute.
+   * @param args    String arguments to the command being executed.
    */
-  private void runCommand(ArgumentWrapper args) {
-    commandClass.executeCommandWith(args, cache);
+  private void runCommand(CommandFactory command, ArgumentWrapper args) {
+    if (lazy) {
+      command.deferCommandWith(args, cache);
+    }
+    else {
+      command.executeCommandWith(args, cache);
+    }
   }
 
   /**
@@ -120,6 +227,48 @@ public class Model implements IModel {
     return cache.getHistogram(name).getHistogram();
   }
 
+  @Override
+  public Set<String> getPointOperations() {
+    return CommandFactory.getPointOperations();
+  }
+
+  /**
+   * {@inheritDoc} In lazy mode the commands are deferred one by one instead, and fused when
+   * their results are read, see {@link Recipe}.
+   */
+  @Override
+  public void executeFused(List<String> commands, List<ArgumentWrapper> args,
+                           Set<String> materialized) {
+    if (lazy) {
+      throw new UnsupportedOperationException("Commands are fused when read in lazy mode.");
+    }
+    List<CommandFactory> chain = new ArrayList<>();
+    for (String command : commands) {
+      CommandFactory found = null;
+      for (CommandFactory c : CommandFactory.values()) {
+        if (c.getCommandName().equals(command)) {
+          found = c;
+        }
+      }
+      if (found == null) {
+        throw new UnsupportedOperationException(
+            "User Error: Input command \"" + command + "\" not found.");
+      }
+      chain.add(found);
+    }
+    CommandFactory.executeFusedWith(chain, args, materialized, cache);
+  }
+
+  @Override
+  public boolean releaseIfUnpinned(String name) {
+    return cache.releaseIfUnpinned(name);
+  }
+
+  @Override
+  public CacheStats getCacheStats() {
+    return cache.getStats();
+  }
+
   @Override
   public Map<String, Signature> getCommandSignatures() {
     return CommandFactory.getSignatureMap();
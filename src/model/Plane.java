@@ -0,0 +1,87 @@
+package model;
+
+/**
+ * A plane holds the samples of one channel of an {@link Image}. The sample of the pixel at
+ * {@code (row, col)} can be read by position, or by its row-major index
+ * {@code row * width + col}. Every sample is an unsigned 8-bit value in the range [0, 255].
+ * <br>
+ * How the samples are laid out in memory depends on the {@link Storage} the plane was allocated
+ * from, e.g.: one contiguous array, or fixed-size tiles.
+ * <br>
+ * Planes are immutable. This allows images to share planes freely: an image derived from another
+ * one references the planes it does not change instead of duplicating them. New planes are created
+ * with a {@link PlaneWriter}.
+ *
+ * @see PlaneWriter
+ * @see Image#getPlane(int)
+ */
+public interface Plane {
+
+  /**
+   * Gets a sample by its row-major index.
+   *
+   * @param index the index of the sample, i.e.: {@code row * width + col}.
+   * @return the sample value in [0, 255].
+   */
+  int get(int index);
+
+  /**
+   * Gets a sample by its position.
+   *
+   * @param row the row of the pixel.
+   * @param col the column of the pixel.
+   * @return the sample value in [0, 255].
+   */
+  int get(int row, int col);
+
+  /**
+   * Gets a sample by its position with full precision. Only planes of {@link Storage#FLOAT} hold
+   * values between the 8-bit levels or outside [0, 255]; other planes return
+   * {@link #get(int, int)}.
+   *
+   * @param row the row of the pixel.
+   * @param col the column of the pixel.
+   * @return the unquantized sample value.
+   */
+  default float getFloat(int row, int col) {
+    return get(row, col);
+  }
+
+  /**
+   * Gets the number of rows of this plane.
+   *
+   * @return the height.
+   */
+  int getHeight();
+
+  /**
+   * Gets the number of columns of this plane.
+   *
+   * @return the width.
+   */
+  int getWidth();
+
+  /**
+   * Gets the storage this plane was allocated from.
+   *
+   * @return the storage of the plane.
+   */
+  Storage getStorage();
+
+  /**
+   * Gets the number of bytes of memory this plane holds on to, used to account for the memory
+   * used by the {@link Cache}. Planes paged in and out by the operating system report 0.
+   *
+   * @return the size of the samples in bytes.
+   */
+  long getSizeInBytes();
+
+  /**
+   * Gets the number of samples in this plane.
+   *
+   * @return the number of samples, i.e.: {@code height * width}.
+   */
+  default int size() {
+    return getHeight() * getWidth();
+  }
+}
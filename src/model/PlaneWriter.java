@@ -0,0 +1,215 @@
+package model;
+
+/**
+ * A writer used to create a new {@link Plane}. A writer is either empty (all samples are 0) or
+ * initialized from an existing plane with copy-on-write semantics: the source plane is only copied
+ * on the first {@code set}. If nothing is written, {@link #toPlane()} returns the source plane
+ * itself, so the resulting image shares it, and an empty writer never allocates a plane at all.
+ * <br>
+ * Once {@link #toPlane()} is called, the writer cannot be used anymore.
+ * <h3>Usage:</h3>
+ * <pre>
+ *   PlaneWriter writer = new PlaneWriter(image.getPlane(Image.RED));
+ *   writer.set(0, 255);              // The source plane is copied here.
+ *   Plane red = writer.toPlane();
+ * </pre>
+ */
+public class PlaneWriter {
+
+  private final int height;
+  private final int width;
+  private final Storage storage;
+  private Plane source;
+  private WritablePlane target;
+  private boolean done = false;
+
+  /**
+   * Creates a writer for an empty plane on the heap.
+   *
+   * @param height the number of rows.
+   * @param width  the number of columns.
+   */
+  public PlaneWriter(int height, int width) {
+    this(height, width, Storage.HEAP);
+  }
+
+  /**
+   * Creates a writer for an empty plane allocated from {@code storage}. The plane is only allocated
+   * on the first write.
+   *
+   * @param height  the number of rows.
+   * @param width   the number of columns.
+   * @param storage the storage to allocate the plane from.
+   */
+  public PlaneWriter(int height, int width, Storage storage) {
+    this(new ConstantPlane(height, width, 0, storage));
+  }
+
+  /**
+   * Creates a writer that starts with the samples of {@code source}. The source is copied lazily,
+   * in its own storage, on the first write.
+   *
+   * @param source the plane to start from.
+   */
+  public PlaneWriter(Plane source) {
+    this.height = source.getHeight();
+    this.width = source.getWidth();
+    this.storage = source.getStorage();
+    this.source = source;
+  }
+
+  /**
+   * Gets the number of rows.
+   *
+   * @return the height of the plane being written.
+   */
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Gets the number of columns.
+   *
+   * @return the width of the plane being written.
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Gets the number of samples.
+   *
+   * @return the size of the plane being written.
+   */
+  public int size() {
+    return height * width;
+  }
+
+  /**
+   * Gets a sample of the plane being written by its row-major index.
+   *
+   * @param index the index of the sample.
+   * @return the sample value in [0, 255].
+   */
+  public int get(int index) {
+    return (target == null) ? source.get(index) : target.get(index);
+  }
+
+  /**
+   * Gets a sample of the plane being written by its position.
+   *
+   * @param row the row of the pixel.
+   * @param col the column of the pixel.
+   * @return the sample value in [0, 255].
+   */
+  public int get(int row, int col) {
+    return (target == null) ? source.get(row, col) : target.get(row, col);
+  }
+
+  /**
+   * Gets a sample of the plane being written by its position with full precision.
+   *
+   * @param row the row of the pixel.
+   * @param col the column of the pixel.
+   * @return the unquantized sample value, see {@link Plane#getFloat(int, int)}.
+   */
+  public float getFloat(int row, int col) {
+    return (target == null) ? source.getFloat(row, col) : target.getFloat(row, col);
+  }
+
+  /**
+   * Sets a sample by its row-major index. The value is clamped to [0, 255].
+   *
+   * @param index the index of the sample.
+   * @param value the value.
+   * @throws IllegalStateException if the plane has already been created.
+   */
+  public void set(int index, int value) {
+    prepareWrite();
+    target.set(index, Math.min(255, Math.max(0, value)));
+  }
+
+  /**
+   * Sets a sample by its position. The value is clamped to [0, 255].
+   *
+   * @param row   the row of the pixel.
+   * @param col   the column of the pixel.
+   * @param value the value.
+   * @throws IllegalStateException if the plane has already been created.
+   */
+  public void set(int row, int col, int value) {
+    prepareWrite();
+    target.set(row, col, Math.min(255, Math.max(0, value)));
+  }
+
+  /**
+   * Sets a sample by its position with full precision. A plane of {@link Storage#FLOAT} keeps the
+   * value as is; other planes round it to the nearest level and clamp it to [0, 255].
+   *
+   * @param row   the row of the pixel.
+   * @param col   the column of the pixel.
+   * @param value the unquantized value.
+   * @throws IllegalStateException if the plane has already been created.
+   */
+  public void setFloat(int row, int col, double value) {
+    prepareWrite();
+    target.setFloat(row, col, value);
+  }
+
+  /**
+   * Allocates the plane, copying the source plane, as the first write would. Writes to different
+   * samples can then come from several threads at once.
+   *
+   * @throws IllegalStateException if the plane has already been created.
+   */
+  public void prepare() {
+    prepareWrite();
+  }
+
+  /**
+   * Checks whether anything was written, so the plane created will not be the source plane.
+   *
+   * @return true if a sample was written or the plane was prepared.
+   */
+  public boolean isWritten() {
+    return target != null;
+  }
+
+  /**
+   * Creates the plane. If nothing was written to a writer created from a source plane, the source
+   * plane is returned.
+   *
+   * @return an immutable plane.
+   * @throws IllegalStateException if the plane has already been created.
+   */
+  public Plane toPlane() {
+    if (done) {
+      throw new IllegalStateException("Plane has already been created.");
+    }
+    done = true;
+    Plane plane = (target == null) ? source : target;
+    source = null;
+    target = null;
+    return plane;
+  }
+
+  /**
+   * Checks that the writer is still open and copies the source plane before the first write.
+   */
+  private void prepareWrite() {
+    if (done) {
+      throw new IllegalStateException("Plane has already been created.");
+    }
+    if (target == null) {
+      target = storage.allocate(height, width);
+      // Newly allocated planes are already all 0.
+      boolean zero = source instanceof ConstantPlane && ((ConstantPlane) source).getValue() == 0;
+      for (int i = 0; i < height && !zero; i++) {
+        for (int j = 0; j < width; j++) {
+          target.setFloat(i, j, source.getFloat(i, j));
+        }
+      }
+      source = null;
+    }
+  }
+}
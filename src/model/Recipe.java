@@ -0,0 +1,219 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ForkJoinTask;
+import model.command.CommandFactory;
+import utils.arguments.ArgumentWrapper;
+
+/**
+ * A deferred command: the command, its arguments and the images it reads, kept in the
+ * {@link Cache} in place of the images it writes. The command is only executed when one of its
+ * results is read (see {@link Cache#set(Recipe)}), so a result that is overwritten before it is
+ * read is never computed.
+ * <br>
+ * The inputs are captured when the recipe is set, so overwriting an input alias afterwards does not
+ * change the result. The captured inputs count towards the memory budget of the cache while the
+ * recipe is in it, also once their aliases are overwritten. An input may itself be the result of
+ * another recipe, which is then computed first. The recipes form a graph over the aliases, which is
+ * planned as a whole when a result is read:
+ * <ul>
+ *   <li>A chain of point operations (see {@link CommandFactory#isPointOperation()}), each reading
+ *   the deferred result of the one before, runs as one pass over the first image. The results in
+ *   between are not stored; they stay deferred until they are read themselves.
+ *   <li>When a command reads several deferred results, e.g. {@code rgb-combine}, they are
+ *   computed concurrently on the common fork/join pool.
+ * </ul>
+ * <h3>Usage:</h3>
+ * <pre>
+ *   cache.set(new Recipe(CommandFactory.BLUR, args, List.of("koala"), List.of("koala-blur")));
+ *   Image blurred = cache.get("koala-blur");     // The blur runs here.
+ * </pre>
+ */
+public final class Recipe {
+
+  private final CommandFactory command;
+  private final ArgumentWrapper args;
+  private final List<String> inputNames;
+  private final List<String> outputNames;
+
+  // The captured inputs, null once the recipe has been computed.
+  private Map<String, Object> inputs;
+  // The captured inputs as they were captured, counted by the cache while the recipe is in it.
+  private volatile List<Object> captured = List.of();
+  // The remembered command results of the cache the recipe was set in.
+  private Memo memo;
+  // The results by output name, null until the recipe has been computed.
+  private Map<String, Object> results;
+
+  /**
+   * Creates a recipe.
+   *
+   * @param command the command to execute.
+   * @param args    the arguments of the command.
+   * @param inputs  the names of the images and histograms the command reads.
+   * @param outputs the names of the images and histograms the command writes.
+   */
+  public Recipe(CommandFactory command, ArgumentWrapper args, List<String> inputs,
+                List<String> outputs) {
+    this.command = command;
+    this.args = args;
+    this.inputNames = new ArrayList<>(inputs);
+    this.outputNames = new ArrayList<>(outputs);
+  }
+
+  /**
+   * Gets the names of the images and histograms the command writes.
+   *
+   * @return the output names.
+   */
+  public List<String> getOutputs() {
+    return new ArrayList<>(outputNames);
+  }
+
+  /**
+   * Captures the current entries of the inputs, without computing them.
+   *
+   * @param cache the cache to read the inputs from.
+   * @throws NoSuchElementException if an input is not in the cache.
+   */
+  synchronized void capture(Cache cache) throws NoSuchElementException {
+    memo = cache.getMemo();
+    inputs = new HashMap<>();
+    for (String name : inputNames) {
+      inputs.put(name, cache.peek(name));
+    }
+    captured = List.copyOf(inputs.values());
+  }
+
+  /**
+   * Gets the images, histograms and recipes captured as inputs. The recipe holds them until it is
+   * no longer referenced, so the cache counts their memory while the recipe is in it.
+   *
+   * @return the captured inputs, empty before {@link #capture(Cache)}.
+   */
+  List<Object> getCaptured() {
+    return captured;
+  }
+
+  /**
+   * Gets a result of the recipe, executing the command on the captured inputs the first time.
+   *
+   * @param name the output name.
+   * @return the image or histogram written to {@code name}.
+   * @throws NoSuchElementException if the command did not write {@code name}.
+   */
+  synchronized Object result(String name) throws NoSuchElementException {
+    if (results == null) {
+      Cache scratch = new Cache(memo);
+      if (!fuse(scratch)) {
+        resolveInputs();
+        inputs.forEach(scratch::put);
+        command.executeCommandWith(args, scratch);
+      }
+      results = new HashMap<>();
+      for (String output : outputNames) {
+        results.put(output, scratch.resolve(output));
+      }
+      inputs = null;
+    }
+    Object result = results.get(name);
+    if (result == null) {
+      throw new NoSuchElementException(name + " was not written by " + command.getCommandName());
+    }
+    return result;
+  }
+
+  /**
+   * Runs this recipe and the deferred point operations before it as one pass, if this recipe is a
+   * point operation reading the deferred result of another.
+   *
+   * @param scratch the cache to write the result to.
+   * @return false if there is no chain to fuse or it was rejected, and nothing was executed.
+   */
+  private boolean fuse(Cache scratch) {
+    if (!isFusible()) {
+      return false;
+    }
+    List<Recipe> chain = new ArrayList<>();
+    chain.add(this);
+    Object input = inputs.get(inputNames.get(0));
+    while (input instanceof Recipe && ((Recipe) input).isFusible()) {
+      chain.add(0, (Recipe) input);
+      input = ((Recipe) input).capturedInput();
+    }
+    if (chain.size() == 1 || input == null) {
+      return false;
+    }
+
+    String source = chain.get(0).inputNames.get(0);
+    List<CommandFactory> commands = new ArrayList<>();
+    List<ArgumentWrapper> arguments = new ArrayList<>();
+    for (Recipe step : chain) {
+      commands.add(step.command);
+      arguments.add(step.args);
+    }
+    Cache fused = new Cache(memo);
+    fused.put(source, (input instanceof Recipe) ? ((Recipe) input).result(source) : input);
+    try {
+      CommandFactory.executeFusedWith(commands, arguments, Set.of(outputNames.get(0)), fused);
+    } catch (IllegalArgumentException e) {
+      // E.g. a split or an invalid argument; executed on its own, the command reports it.
+      return false;
+    }
+    scratch.put(outputNames.get(0), fused.resolve(outputNames.get(0)));
+    return true;
+  }
+
+  /**
+   * Computes the deferred inputs, concurrently if there are several.
+   */
+  private void resolveInputs() {
+    List<String> deferred = new ArrayList<>();
+    inputs.forEach((name, input) -> {
+      if (input instanceof Recipe) {
+        deferred.add(name);
+      }
+    });
+    if (deferred.size() < 2) {
+      return;
+    }
+    List<ForkJoinTask<Object>> tasks = new ArrayList<>();
+    for (String name : deferred) {
+      Recipe input = (Recipe) inputs.get(name);
+      tasks.add(ForkJoinTask.adapt(() -> input.result(name)));
+    }
+    // Forked outside a pool, the tasks run on the common pool; this thread computes the first.
+    for (int i = 1; i < tasks.size(); i++) {
+      tasks.get(i).fork();
+    }
+    inputs.put(deferred.get(0), tasks.get(0).invoke());
+    for (int i = 1; i < tasks.size(); i++) {
+      inputs.put(deferred.get(i), tasks.get(i).join());
+    }
+  }
+
+  /**
+   * Checks whether this recipe is a point operation reading one input and writing one output that
+   * has not been executed yet, so it can be fused with the recipes before and after it.
+   *
+   * @return true if the recipe can be fused.
+   */
+  private synchronized boolean isFusible() {
+    return results == null && command.isPointOperation() && inputNames.size() == 1
+           && outputNames.size() == 1;
+  }
+
+  /**
+   * Gets the captured entry of the single input.
+   *
+   * @return the image or recipe, or null once the recipe has been computed.
+   */
+  private synchronized Object capturedInput() {
+    return (inputs == null) ? null : inputs.get(inputNames.get(0));
+  }
+}
@@ -0,0 +1,235 @@
+package model;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the results of commands in a directory across runs, like a build cache. Results are stored
+ * under the {@link Memo} key of the command, which only depends on the command, its arguments and
+ * the pixels of its inputs, so a script run again on unchanged images loads the results of its
+ * unchanged steps instead of recomputing them.
+ * <br>
+ * Each result is one file named after a digest of its key and of the versions of the store and of
+ * {@link SpillFile}, holding a header with the versions, the key and the images and histograms in
+ * the format of {@link SpillFile}. Bumping {@link #VERSION} when a command changes its results, or
+ * {@link SpillFile#VERSION} when the layout changes, makes the older files misses. When the files
+ * exceed the size limit, the least recently used ones are deleted. The store is a cache: a file
+ * that cannot be read, is corrupt or was written by another version is ignored and the command is
+ * simply executed.
+ * <h3>Usage:</h3>
+ * <pre>
+ *   model.setResultStore(new ResultStore(Paths.get("results"), 1L &lt;&lt; 30));
+ * </pre>
+ */
+public final class ResultStore {
+
+  /**
+   * The version of the results of the commands. Bump it whenever a command changes the results it
+   * computes, so results stored by an older version are not served.
+   */
+  public static final int VERSION = 1;
+
+  private static final String SUFFIX = ".result";
+  // "IMRS", the first bytes of every result file.
+  private static final int MAGIC = 0x494d5253;
+
+  private final Path directory;
+  private final long limit;
+  // The total size of the files, kept as results are stored and deleted. Guarded by this.
+  private long size;
+
+  /**
+   * Creates a store in a directory, creating the directory if needed.
+   *
+   * @param directory the directory to keep the results in.
+   * @param limit     the maximum total size of the results in bytes.
+   * @throws IllegalArgumentException if the limit is not positive or the directory cannot be
+   *                                  created.
+   */
+  public ResultStore(Path directory, long limit) {
+    if (limit <= 0) {
+      throw new IllegalArgumentException("Result store limit must be positive.");
+    }
+    try {
+      Files.createDirectories(directory);
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Cannot create result store " + directory + ".");
+    }
+    this.directory = directory;
+    this.limit = limit;
+    for (Path file : files()) {
+      size += sizeOf(file);
+    }
+  }
+
+  /**
+   * Loads the results stored for a key.
+   *
+   * @param key the key of the command.
+   * @return the images and histograms written by the command in order, or null if there are none
+   *         or the file cannot be read.
+   */
+  public List<Object> load(String key) {
+    Path file = fileOf(key);
+    if (!Files.exists(file)) {
+      return null;
+    }
+    try (DataInputStream in = SpillFile.openInput(file)) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != SpillFile.VERSION
+          || !in.readUTF().equals(key)) {
+        return null;
+      }
+      List<Object> results = new ArrayList<>();
+      for (int count = in.readInt(); count > 0; count--) {
+        results.add(SpillFile.readEntry(in));
+      }
+      // Marks the file as recently used.
+      Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+      return results;
+    } catch (IOException | RuntimeException e) {
+      // Unreadable or corrupt; the command is executed instead.
+      return null;
+    }
+  }
+
+  /**
+   * Stores the results of a command, then deletes the least recently used results if the store is
+   * over its size limit.
+   *
+   * @param key     the key of the command.
+   * @param results the images and histograms written by the command in order.
+   */
+  public void store(String key, List<Object> results) {
+    Path file = fileOf(key);
+    try {
+      // Written aside and moved in place, so a concurrent load never sees half a file.
+      Path temporary = Files.createTempFile(directory, "store", ".tmp");
+      try (DataOutputStream out = SpillFile.openOutput(temporary)) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(SpillFile.VERSION);
+        out.writeUTF(key);
+        out.writeInt(results.size());
+        for (Object result : results) {
+          SpillFile.writeEntry(result, out);
+        }
+      } catch (IOException e) {
+        Files.deleteIfExists(temporary);
+        throw e;
+      }
+      synchronized (this) {
+        long replaced = sizeOf(file);
+        long added = sizeOf(temporary);
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+        size += added - replaced;
+        if (size > limit) {
+          trim();
+        }
+      }
+    } catch (IOException e) {
+      // Not stored; the command is executed again next time.
+    }
+  }
+
+  /**
+   * Deletes all stored results.
+   */
+  public synchronized void purge() {
+    for (Path file : files()) {
+      SpillFile.delete(file);
+    }
+    size = 0;
+  }
+
+  /**
+   * Gets the total size of the stored results.
+   *
+   * @return the size in bytes.
+   */
+  public synchronized long getSize() {
+    return size;
+  }
+
+  /**
+   * Gets the maximum total size of the stored results.
+   *
+   * @return the limit in bytes.
+   */
+  public long getLimit() {
+    return limit;
+  }
+
+  /**
+   * Deletes the least recently used results until the store fits its limit. The size is counted
+   * again from the files, in case they were changed from outside. Guarded by this.
+   */
+  private void trim() {
+    List<Path> files = files();
+    size = 0;
+    for (Path file : files) {
+      size += sizeOf(file);
+    }
+    files.sort(Comparator.comparing(ResultStore::lastUsed));
+    for (Path file : files) {
+      if (size <= limit) {
+        return;
+      }
+      size -= sizeOf(file);
+      SpillFile.delete(file);
+    }
+  }
+
+  /**
+   * Lists the result files of the store.
+   *
+   * @return the files.
+   */
+  private List<Path> files() {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.filter(file -> file.getFileName().toString().endsWith(SUFFIX))
+                  .collect(Collectors.toCollection(ArrayList::new));
+    } catch (IOException e) {
+      return new ArrayList<>();
+    }
+  }
+
+  /**
+   * Gets the file of a key, named after the SHA-256 digest of the versions and the key.
+   *
+   * @param key the key of the command.
+   * @return the path of the file.
+   */
+  private Path fileOf(String key) {
+    String versioned = VERSION + "." + SpillFile.VERSION + " " + key;
+    byte[] digest = Image.newDigest().digest(versioned.getBytes(StandardCharsets.UTF_8));
+    return directory.resolve(Image.toHex(digest) + SUFFIX);
+  }
+
+  private static long sizeOf(Path file) {
+    try {
+      return Files.size(file);
+    } catch (IOException e) {
+      return 0;
+    }
+  }
+
+  private static FileTime lastUsed(Path file) {
+    try {
+      return Files.getLastModifiedTime(file);
+    } catch (IOException e) {
+      return FileTime.fromMillis(0);
+    }
+  }
+}
@@ -0,0 +1,155 @@
+package model;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs a loop over the rows of an image in parallel, on a fork/join pool shared by all commands.
+ * The rows are split in halves until a band holds at most {@link #GRAIN} pixels, and the bands run
+ * on the threads of the pool. Each row belongs to exactly one band, so a body that only writes the
+ * rows of its band produces the same result however the rows are split.
+ * <br>
+ * Regions smaller than the threshold, see {@link #setThreshold(long)}, run as a single band on the
+ * calling thread, where splitting would cost more than it saves. With a parallelism of 1 every
+ * region runs on the calling thread.
+ * <h3>Usage:</h3>
+ * <pre>
+ *   ImageBuilder builder = new ImageBuilder(height, width, 3, Storage.HEAP);
+ *   builder.prepare();                                  // Before writing from several threads.
+ *   RowBands.forEach(height, width, (startRow, endRow) -&gt; {
+ *     for (int i = startRow; i &lt; endRow; i++) {
+ *       ...
+ *     }
+ *   });
+ * </pre>
+ */
+public final class RowBands {
+
+  /**
+   * The number of pixels below which a band is not split further.
+   */
+  public static final int GRAIN = 1 << 16;
+
+  /**
+   * The body of a loop over a band of rows.
+   */
+  @FunctionalInterface
+  public interface Body {
+
+    /**
+     * Runs the loop over a band.
+     *
+     * @param startRow the first row of the band.
+     * @param endRow   the row after the last row of the band.
+     */
+    void run(int startRow, int endRow);
+  }
+
+  private static volatile ForkJoinPool pool =
+      new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+  private static volatile long threshold = 1L << 18;
+
+  private RowBands() {
+  }
+
+  /**
+   * Runs a body over the rows of a {@code height x width} region and waits for it to finish.
+   *
+   * @param height the number of rows.
+   * @param width  the number of columns the body processes per row.
+   * @param body   the loop over a band of rows.
+   */
+  public static void forEach(int height, int width, Body body) {
+    ForkJoinPool current = pool;
+    if (current.getParallelism() == 1 || (long) height * width < threshold) {
+      body.run(0, height);
+    }
+    else {
+      try {
+        current.invoke(new Band(0, height, width, body));
+      } catch (RejectedExecutionException e) {
+        // The parallelism changed after the pool was read; nothing has run yet.
+        body.run(0, height);
+      }
+    }
+  }
+
+  /**
+   * Sets the number of threads running bands. The pool of the previous parallelism finishes the
+   * bands it is running and then ends its threads.
+   *
+   * @param parallelism the number of threads, 1 to run every loop on the calling thread.
+   * @throws IllegalArgumentException if the parallelism is not positive.
+   */
+  public static void setParallelism(int parallelism) {
+    if (parallelism <= 0) {
+      throw new IllegalArgumentException("Parallelism must be positive.");
+    }
+    ForkJoinPool previous = pool;
+    pool = new ForkJoinPool(parallelism);
+    previous.shutdown();
+  }
+
+  /**
+   * Gets the number of threads running bands. Defaults to the number of processors.
+   *
+   * @return the parallelism.
+   */
+  public static int getParallelism() {
+    return pool.getParallelism();
+  }
+
+  /**
+   * Sets the number of pixels from which a region is split into bands. Defaults to 512x512.
+   *
+   * @param pixels the threshold, 0 to split every region.
+   * @throws IllegalArgumentException if the threshold is negative.
+   */
+  public static void setThreshold(long pixels) {
+    if (pixels < 0) {
+      throw new IllegalArgumentException("Threshold must not be negative.");
+    }
+    threshold = pixels;
+  }
+
+  /**
+   * Gets the number of pixels from which a region is split into bands.
+   *
+   * @return the threshold.
+   */
+  public static long getThreshold() {
+    return threshold;
+  }
+
+  /**
+   * A band of rows, split in halves until it is small enough to run.
+   */
+  private static final class Band extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int startRow;
+    private final int endRow;
+    private final int width;
+    private final Body body;
+
+    private Band(int startRow, int endRow, int width, Body body) {
+      this.startRow = startRow;
+      this.endRow = endRow;
+      this.width = width;
+      this.body = body;
+    }
+
+    @Override
+    protected void compute() {
+      int rows = endRow - startRow;
+      if (rows <= 1 || (long) rows * width <= GRAIN) {
+        body.run(startRow, endRow);
+        return;
+      }
+      int middle = startRow + rows / 2;
+      invokeAll(new Band(startRow, middle, width, body), new Band(middle, endRow, width, body));
+    }
+  }
+}
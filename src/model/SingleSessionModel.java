@@ -38,7 +38,7 @@ public class SingleSessionModel implements ISingleSessionModel {
     }
 
     String alias = (preview) ? previewAlias : mainAlias;
-    view.updateDisplay(model.getImage(alias));
+    view.updateDisplay(model.getImageView(alias));
     model.execute("histogram",
                   new ArgumentWrapper(new StringArgument(alias),
                                       new StringArgument(MAIN_HISTOGRAM_ALIAS)));
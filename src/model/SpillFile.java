@@ -0,0 +1,322 @@
+package model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes cache entries to raw files in the scratch directory (see
+ * {@link Storage#getScratchDirectory()}) and reads them back. Used by the {@link Cache} to spill
+ * the entries it evicts instead of dropping them, and by the {@link ResultStore} to keep command
+ * results across runs.
+ * <br>
+ * An image is written as its dimensions and storage followed by one record per channel: a channel
+ * sharing the plane of an earlier channel only stores that channel, a constant plane only stores
+ * its value, and any other plane stores its samples row by row, as bytes or, for
+ * {@link Storage#FLOAT}, as floats. An image read back keeps its storage and its shared and
+ * constant planes. A {@link CompressedEntry} is written as its compressed bytes.
+ * <br>
+ * Entries are validated while they are read, so a corrupt or truncated file fails with an
+ * {@link IOException} rather than with an arbitrary runtime exception.
+ */
+final class SpillFile {
+
+  /**
+   * The version of the layout of entries. Bump it whenever the layout changes, so results kept
+   * across runs in an older layout are not read, see {@link ResultStore}.
+   */
+  static final int VERSION = 1;
+
+  private static final int IMAGE = 0;
+  private static final int HISTOGRAM = 1;
+  private static final int COMPRESSED = 2;
+
+  private static final int SHARED = 0;
+  private static final int CONSTANT = 1;
+  private static final int SAMPLES = 2;
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private SpillFile() {
+  }
+
+  /**
+   * Writes an entry to a new file in the scratch directory. The file is deleted when the JVM exits
+   * if it has not been read back by then.
+   *
+   * @param entry the image or histogram.
+   * @return the path of the file.
+   * @throws IOException if the file cannot be written.
+   */
+  static Path write(Object entry) throws IOException {
+    Path file = Files.createTempFile(Storage.getScratchDirectory(), "cache", ".raw");
+    file.toFile().deleteOnExit();
+    try (DataOutputStream out = openOutput(file)) {
+      writeEntry(entry, out);
+    } catch (IOException e) {
+      Files.deleteIfExists(file);
+      throw e;
+    }
+    return file;
+  }
+
+  /**
+   * Reads an entry written by {@link #write(Object)} and deletes the file.
+   *
+   * @param file the path of the file.
+   * @return the image or histogram.
+   * @throws IOException if the file cannot be read.
+   */
+  static Object read(Path file) throws IOException {
+    try (DataInputStream in = openInput(file)) {
+      return readEntry(in);
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  /**
+   * Deletes a file that will not be read back.
+   *
+   * @param file the path of the file.
+   */
+  static void delete(Path file) {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException ignored) {
+      // The file is deleted on exit.
+    }
+  }
+
+  /**
+   * Opens a buffered stream to write entries to a file.
+   *
+   * @param file the path of the file.
+   * @return the stream.
+   * @throws IOException if the file cannot be opened.
+   */
+  static DataOutputStream openOutput(Path file) throws IOException {
+    return new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE));
+  }
+
+  /**
+   * Opens a buffered stream to read entries from a file.
+   *
+   * @param file the path of the file.
+   * @return the stream.
+   * @throws IOException if the file cannot be opened.
+   */
+  static DataInputStream openInput(Path file) throws IOException {
+    return new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE));
+  }
+
+  /**
+   * Writes an entry to a stream.
+   *
+   * @param entry the image, histogram or compressed entry.
+   * @param out   the stream.
+   * @throws IOException if the entry cannot be written.
+   */
+  static void writeEntry(Object entry, DataOutputStream out) throws IOException {
+    writeEntry(entry, out, false);
+  }
+
+  /**
+   * Writes an entry to a stream, optionally storing each sample of an image as the difference to
+   * the previous sample of its row. Neighbouring samples are usually close, so the differences
+   * compress much better.
+   *
+   * @param entry the image, histogram or compressed entry.
+   * @param out   the stream.
+   * @param delta whether to store the samples of images as differences.
+   * @throws IOException if the entry cannot be written.
+   */
+  static void writeEntry(Object entry, DataOutputStream out, boolean delta) throws IOException {
+    if (entry instanceof Histogram) {
+      out.writeByte(HISTOGRAM);
+      for (int[] channel : ((Histogram) entry).getHistogram()) {
+        for (int frequency : channel) {
+          out.writeInt(frequency);
+        }
+      }
+    }
+    else if (entry instanceof CompressedEntry) {
+      byte[] data = ((CompressedEntry) entry).getData();
+      out.writeByte(COMPRESSED);
+      out.writeInt(data.length);
+      out.write(data);
+    }
+    else {
+      out.writeByte(IMAGE);
+      writeImage((Image) entry, out, delta);
+    }
+  }
+
+  /**
+   * Reads an entry written by {@link #writeEntry(Object, DataOutputStream)}.
+   *
+   * @param in the stream.
+   * @return the image, histogram or compressed entry.
+   * @throws IOException if the entry cannot be read.
+   */
+  static Object readEntry(DataInputStream in) throws IOException {
+    return readEntry(in, false);
+  }
+
+  /**
+   * Reads an entry written by {@link #writeEntry(Object, DataOutputStream, boolean)}.
+   *
+   * @param in    the stream.
+   * @param delta whether the samples of images were stored as differences.
+   * @return the image, histogram or compressed entry.
+   * @throws IOException if the entry cannot be read or is corrupt.
+   */
+  static Object readEntry(DataInputStream in, boolean delta) throws IOException {
+    int kind = in.readByte();
+    if (kind == HISTOGRAM) {
+      int[][] histogram = new int[3][256];
+      for (int[] channel : histogram) {
+        for (int value = 0; value < channel.length; value++) {
+          channel[value] = in.readInt();
+        }
+      }
+      return new Histogram(histogram);
+    }
+    if (kind == COMPRESSED) {
+      byte[] data = new byte[check(in.readInt(), 0, Integer.MAX_VALUE, "compressed length")];
+      in.readFully(data);
+      return new CompressedEntry(data);
+    }
+    check(kind, IMAGE, IMAGE, "entry kind");
+    return readImage(in, delta);
+  }
+
+  private static void writeImage(Image image, DataOutputStream out, boolean delta)
+      throws IOException {
+    int height = image.getHeight();
+    int width = image.getWidth();
+    out.writeInt(height);
+    out.writeInt(width);
+    out.writeInt(image.getNoOfChannels());
+    out.writeByte(image.getStorage().ordinal());
+    byte[] row = new byte[width];
+    for (int c = 0; c < image.getNoOfChannels(); c++) {
+      Plane plane = image.getPlane(c);
+      int shared = sharedChannel(image, c);
+      if (shared >= 0) {
+        out.writeByte(SHARED);
+        out.writeInt(shared);
+      }
+      else if (plane instanceof ConstantPlane) {
+        out.writeByte(CONSTANT);
+        out.writeInt(((ConstantPlane) plane).getValue());
+      }
+      else if (plane.getStorage() == Storage.FLOAT) {
+        out.writeByte(SAMPLES);
+        for (int i = 0; i < height; i++) {
+          int previous = 0;
+          for (int j = 0; j < width; j++) {
+            int bits = Float.floatToIntBits(plane.getFloat(i, j));
+            out.writeInt(delta ? bits - previous : bits);
+            previous = bits;
+          }
+        }
+      }
+      else {
+        out.writeByte(SAMPLES);
+        for (int i = 0; i < height; i++) {
+          int previous = 0;
+          for (int j = 0; j < width; j++) {
+            int sample = plane.get(i, j);
+            row[j] = (byte) (delta ? sample - previous : sample);
+            previous = sample;
+          }
+          out.write(row);
+        }
+      }
+    }
+  }
+
+  private static Image readImage(DataInputStream in, boolean delta) throws IOException {
+    int height = check(in.readInt(), 0, Integer.MAX_VALUE, "height");
+    int width = check(in.readInt(), 0, Integer.MAX_VALUE / Math.max(1, height), "width");
+    int noOfChannels = check(in.readInt(), 1, 4, "number of channels");
+    Storage storage = Storage.values()[check(in.readByte(), 0, Storage.values().length - 1,
+                                             "storage")];
+    Plane[] planes = new Plane[noOfChannels];
+    for (int c = 0; c < noOfChannels; c++) {
+      int kind = check(in.readByte(), SHARED, SAMPLES, "plane kind");
+      if (kind == SHARED) {
+        planes[c] = planes[check(in.readInt(), 0, c - 1, "shared channel")];
+      }
+      else if (kind == CONSTANT) {
+        planes[c] = new ConstantPlane(height, width, in.readInt(), storage);
+      }
+      else if (storage == Storage.HEAP) {
+        byte[] samples = new byte[height * width];
+        in.readFully(samples);
+        for (int i = 0; delta && i < height; i++) {
+          for (int j = i * width + 1; j < (i + 1) * width; j++) {
+            samples[j] += samples[j - 1];
+          }
+        }
+        planes[c] = new ArrayPlane(height, width, samples);
+      }
+      else {
+        PlaneWriter writer = new PlaneWriter(height, width, storage);
+        byte[] row = new byte[width];
+        for (int i = 0; i < height; i++) {
+          int previous = 0;
+          if (storage == Storage.FLOAT) {
+            for (int j = 0; j < width; j++) {
+              int bits = in.readInt() + (delta ? previous : 0);
+              writer.setFloat(i, j, Float.intBitsToFloat(bits));
+              previous = bits;
+            }
+          }
+          else {
+            in.readFully(row);
+            for (int j = 0; j < width; j++) {
+              int sample = (row[j] + (delta ? previous : 0)) & 0xFF;
+              writer.set(i, j, sample);
+              previous = sample;
+            }
+          }
+        }
+        planes[c] = writer.toPlane();
+      }
+    }
+    return new Image(height, width, planes);
+  }
+
+  /**
+   * Checks a value read from a file.
+   *
+   * @param value the value.
+   * @param min   the smallest valid value.
+   * @param max   the largest valid value.
+   * @param what  what the value is, for the message.
+   * @return the value.
+   * @throws IOException if the value is out of range.
+   */
+  private static int check(int value, int min, int max, String what) throws IOException {
+    if (value < min || value > max) {
+      throw new IOException("Corrupt entry: invalid " + what + " " + value + ".");
+    }
+    return value;
+  }
+
+  private static int sharedChannel(Image image, int channel) {
+    for (int c = 0; c < channel; c++) {
+      if (image.getPlane(c) == image.getPlane(channel)) {
+        return c;
+      }
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,100 @@
+package model;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * The storage an {@link Image} keeps its planes in. Commands allocate the planes of their result
+ * from the storage of their source image (see {@link ImageBuilder}), so a derived image keeps the
+ * layout of its source.
+ * <h3>Usage:</h3>
+ * <pre>
+ *   Image tiled = image.toStorage(Storage.TILED);   // Copies the image into 256x256 tiles.
+ *   Image big = image.toStorage(Storage.OFF_HEAP);  // Copies the image out of the Java heap.
+ *   Image huge = image.toStorage(Storage.MAPPED);   // Copies the image into a scratch file.
+ *   Image exact = image.toStorage(Storage.FLOAT);   // Keeps full precision between commands.
+ * </pre>
+ */
+public enum Storage {
+  /**
+   * One contiguous row-major array per plane on the heap.
+   */
+  HEAP {
+    @Override
+    WritablePlane allocate(int height, int width) {
+      return new ArrayPlane(height, width);
+    }
+  },
+  /**
+   * Fixed-size square tiles of {@link Tile#SIZE} pixels per side on the heap.
+   */
+  TILED {
+    @Override
+    WritablePlane allocate(int height, int width) {
+      return new TiledPlane(height, width);
+    }
+  },
+  /**
+   * One contiguous row-major direct buffer per plane, outside the Java heap.
+   */
+  OFF_HEAP {
+    @Override
+    WritablePlane allocate(int height, int width) {
+      return new DirectPlane(height, width);
+    }
+  },
+  /**
+   * One memory-mapped scratch file per plane, paged in and out by the operating system.
+   */
+  MAPPED {
+    @Override
+    WritablePlane allocate(int height, int width) {
+      return new MappedPlane(height, width);
+    }
+  },
+  /**
+   * One contiguous row-major float array per plane on the heap. Samples keep full precision between
+   * commands and are only quantized to 8 bits when an image is saved or displayed.
+   */
+  FLOAT {
+    @Override
+    WritablePlane allocate(int height, int width) {
+      return new FloatPlane(height, width);
+    }
+  };
+
+  private static volatile Path scratchDirectory = Paths.get(System.getProperty("java.io.tmpdir"));
+
+  /**
+   * Sets the directory {@link #MAPPED} planes create their scratch files in. Defaults to the
+   * temporary directory of the JVM.
+   *
+   * @param directory an existing directory.
+   * @throws IllegalArgumentException if {@code directory} is not a directory.
+   */
+  public static void setScratchDirectory(Path directory) {
+    if (!Files.isDirectory(directory)) {
+      throw new IllegalArgumentException("Not a directory: " + directory);
+    }
+    scratchDirectory = directory;
+  }
+
+  /**
+   * Gets the directory {@link #MAPPED} planes create their scratch files in.
+   *
+   * @return the scratch directory.
+   */
+  public static Path getScratchDirectory() {
+    return scratchDirectory;
+  }
+
+  /**
+   * Allocates an empty plane in this storage.
+   *
+   * @param height the number of rows.
+   * @param width  the number of columns.
+   * @return a writable plane with all samples set to 0.
+   */
+  abstract WritablePlane allocate(int height, int width);
+}
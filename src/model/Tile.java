@@ -0,0 +1,136 @@
+package model;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A rectangular region of an image. Images are walked tile by tile with {@link Image#getTiles()},
+ * which covers the image with square tiles of {@link #SIZE} pixels per side; tiles on the right and
+ * bottom edges are cropped to the image. A tile is a natural unit of work: its working set fits in
+ * the L2 cache, and tiles can be processed independently.
+ * <h3>Usage:</h3>
+ * <pre>
+ *   for (Tile tile : image.getTiles()) {
+ *     for (int i = tile.getRow(); i &lt; tile.getEndRow(); i++) {
+ *       for (int j = tile.getCol(); j &lt; tile.getEndCol(); j++) {
+ *         ...
+ *       }
+ *     }
+ *   }
+ * </pre>
+ */
+public final class Tile {
+
+  /**
+   * The side of a tile in pixels. This is a power of two.
+   */
+  public static final int SIZE = 256;
+
+  private final int row;
+  private final int col;
+  private final int height;
+  private final int width;
+
+  /**
+   * Constructs a tile.
+   *
+   * @param row    the first row of the tile.
+   * @param col    the first column of the tile.
+   * @param height the number of rows.
+   * @param width  the number of columns.
+   */
+  public Tile(int row, int col, int height, int width) {
+    this.row = row;
+    this.col = col;
+    this.height = height;
+    this.width = width;
+  }
+
+  /**
+   * Covers a {@code height x width} region, starting at the origin, with tiles of {@link #SIZE}.
+   * The tiles are returned row by row.
+   *
+   * @param height the number of rows to cover.
+   * @param width  the number of columns to cover.
+   * @return the tiles.
+   */
+  public static Iterable<Tile> grid(int height, int width) {
+    return () -> new Iterator<>() {
+      private int row = 0;
+      private int col = 0;
+
+      @Override
+      public boolean hasNext() {
+        return row < height && col < width;
+      }
+
+      @Override
+      public Tile next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException("No more tiles.");
+        }
+        Tile tile = new Tile(row, col, Math.min(SIZE, height - row), Math.min(SIZE, width - col));
+        col += SIZE;
+        if (col >= width) {
+          col = 0;
+          row += SIZE;
+        }
+        return tile;
+      }
+    };
+  }
+
+  /**
+   * Gets the first row of the tile.
+   *
+   * @return the first row.
+   */
+  public int getRow() {
+    return row;
+  }
+
+  /**
+   * Gets the first column of the tile.
+   *
+   * @return the first column.
+   */
+  public int getCol() {
+    return col;
+  }
+
+  /**
+   * Gets the number of rows of the tile.
+   *
+   * @return the height.
+   */
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Gets the number of columns of the tile.
+   *
+   * @return the width.
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Gets the row after the last row of the tile.
+   *
+   * @return the exclusive end row.
+   */
+  public int getEndRow() {
+    return row + height;
+  }
+
+  /**
+   * Gets the column after the last column of the tile.
+   *
+   * @return the exclusive end column.
+   */
+  public int getEndCol() {
+    return col + width;
+  }
+}
@@ -0,0 +1,79 @@
+package model;
+
+/**
+ * A {@link Plane} stored as fixed-size square tiles of {@link Tile#SIZE} pixels per side. Each tile
+ * is a contiguous row-major array, so a processor walking the image tile by tile (see
+ * {@link Image#getTiles()}) keeps its working set small even on very wide images. Tiles on the
+ * right and bottom edges are cropped to the image.
+ */
+class TiledPlane extends WritablePlane {
+
+  private static final int SHIFT = Integer.numberOfTrailingZeros(Tile.SIZE);
+  private static final int MASK = Tile.SIZE - 1;
+
+  private final int tilesAcross;
+  private final byte[][] tiles;
+
+  /**
+   * Creates an empty tiled plane.
+   *
+   * @param height the number of rows.
+   * @param width  the number of columns.
+   */
+  TiledPlane(int height, int width) {
+    super(height, width);
+    this.tilesAcross = (width + MASK) >> SHIFT;
+    int tilesDown = (height + MASK) >> SHIFT;
+    this.tiles = new byte[tilesAcross * tilesDown][];
+    for (int tileRow = 0; tileRow < tilesDown; tileRow++) {
+      for (int tileCol = 0; tileCol < tilesAcross; tileCol++) {
+        int rows = Math.min(Tile.SIZE, height - (tileRow << SHIFT));
+        tiles[tileRow * tilesAcross + tileCol] = new byte[rows * tileWidth(tileCol)];
+      }
+    }
+  }
+
+  @Override
+  public int get(int index) {
+    return get(index / width, index % width);
+  }
+
+  @Override
+  public int get(int row, int col) {
+    int tileCol = col >> SHIFT;
+    return tiles[(row >> SHIFT) * tilesAcross + tileCol][(row & MASK) * tileWidth(tileCol)
+        + (col & MASK)] & 0xFF;
+  }
+
+  @Override
+  public long getSizeInBytes() {
+    return (long) height * width;
+  }
+
+  @Override
+  public Storage getStorage() {
+    return Storage.TILED;
+  }
+
+  @Override
+  void set(int index, int sample) {
+    set(index / width, index % width, sample);
+  }
+
+  @Override
+  void set(int row, int col, int sample) {
+    int tileCol = col >> SHIFT;
+    tiles[(row >> SHIFT) * tilesAcross + tileCol][(row & MASK) * tileWidth(tileCol)
+        + (col & MASK)] = (byte) sample;
+  }
+
+  /**
+   * Gets the width of the tiles in a column of tiles. Only the last column is narrower.
+   *
+   * @param tileCol the column of the tile.
+   * @return the width of the tile.
+   */
+  private int tileWidth(int tileCol) {
+    return Math.min(Tile.SIZE, width - (tileCol << SHIFT));
+  }
+}
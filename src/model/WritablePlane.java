@@ -0,0 +1,72 @@
+package model;
+
+/**
+ * A plane that can be written to while it is being created. Only a {@link PlaneWriter} holds a
+ * reference to a writable plane before it is published, so a published plane is never written to
+ * again.
+ */
+abstract class WritablePlane implements Plane {
+
+  protected final int height;
+  protected final int width;
+
+  /**
+   * Constructs a writable plane of the given dimensions.
+   *
+   * @param height the number of rows.
+   * @param width  the number of columns.
+   */
+  protected WritablePlane(int height, int width) {
+    this.height = height;
+    this.width = width;
+  }
+
+  /**
+   * Sets a sample by its row-major index.
+   *
+   * @param index  the index of the sample.
+   * @param sample the sample, already within [0, 255].
+   */
+  abstract void set(int index, int sample);
+
+  /**
+   * Sets a sample by its position.
+   *
+   * @param row    the row of the pixel.
+   * @param col    the column of the pixel.
+   * @param sample the sample, already within [0, 255].
+   */
+  abstract void set(int row, int col, int sample);
+
+  /**
+   * Sets a sample by its position with full precision. Planes that keep 8-bit samples round the
+   * value to the nearest level and clamp it to [0, 255].
+   *
+   * @param row   the row of the pixel.
+   * @param col   the column of the pixel.
+   * @param value the unquantized value.
+   */
+  void setFloat(int row, int col, double value) {
+    set(row, col, quantize(value));
+  }
+
+  /**
+   * Rounds a value to the nearest 8-bit level, clamped to [0, 255].
+   *
+   * @param value the value.
+   * @return the sample.
+   */
+  static int quantize(double value) {
+    return Math.min(255, Math.max(0, (int) Math.round(value)));
+  }
+
+  @Override
+  public int getHeight() {
+    return height;
+  }
+
+  @Override
+  public int getWidth() {
+    return width;
+  }
+}
@@ -2,6 +2,7 @@ package model.command;
 
 import model.Cache;
 import model.Image;
+import model.ImageBuilder;
 import utils.arguments.ArgumentWrapper;
 
 /**
@@ -42,41 +43,24 @@ abstract class AbstractColorComponent extends Abstract2ArgCommand {
 
   /**
    * Processes the image by extracting the specified color component and storing the result in the
-   * cache.
+   * cache. The result has the three color channels only, like every command result. The extracted
+   * plane is shared with the source image and both remaining color channels are left empty, so they
+   * share a single constant zero plane.
    */
 
   @Override
   public void execute() {
-    // @todo deal with transparency
-    int[][][] imageArray = new int[height][width][3];
+    ImageBuilder builder = new ImageBuilder(height, width, 3, currentImage.getStorage());
+    builder.setPlane(getChannel(), currentImage.getPlane(getChannel()));
 
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        imageArray[i][j] = getPixel(i, j);
-      }
-    }
-
-    cache.set(imageName, new Image(imageArray));
+    cache.set(imageName, builder.build());
   }
 
   /**
-   * Gets the transformed pixel values for a specific position in the image.
+   * Gets the channel that this component keeps.
    *
-   * @param x The x-coordinate of the pixel
-   * @param y The y-coordinate of the pixel
-   * @return An array containing the transformed RGB values
+   * @return the channel, e.g. {@link Image#RED}.
    */
 
-  protected abstract int[] getPixel(int x, int y);
-
-  /**
-   * method to add transparency.
-   *
-   * @param x The x-coordinate of the pixel
-   * @param y The y-coordinate of the pixel
-   * @return transparency.
-   */
-  private int addTransparency(int x, int y) {
-    return currentImage.getTransparencyData()[x][y];
-  }
+  protected abstract int getChannel();
 }
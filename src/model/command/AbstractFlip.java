@@ -2,6 +2,9 @@ package model.command;
 
 import model.Cache;
 import model.Image;
+import model.ImageBuilder;
+import model.Plane;
+import model.Tile;
 import utils.arguments.ArgumentWrapper;
 
 /**
@@ -49,33 +52,30 @@ abstract class AbstractFlip extends Abstract2ArgCommand {
   public void execute() {
 
     int noOfChannels = currentImage.getNoOfChannels();
-
-    int[][][] imageArray = new int[height][width][noOfChannels];
+    ImageBuilder builder = new ImageBuilder(height, width, noOfChannels, currentImage.getStorage());
 
     // Process all channels using the same flipping logic
-    processChannel(imageArray, currentImage.getRedChannelData(), 0);
-    processChannel(imageArray, currentImage.getGreenChannelData(), 1);
-    processChannel(imageArray, currentImage.getBlueChannelData(), 2);
-
-    if (noOfChannels == 4) {
-      processChannel(imageArray, currentImage.getTransparencyData(), 3);
+    for (int channel = 0; channel < noOfChannels; channel++) {
+      processChannel(currentImage.getPlane(channel), channel, builder);
     }
 
-    Image flippedImage = new Image(imageArray);
+    Image flippedImage = builder.build();
     cache.set(imageName, flippedImage);
   }
 
   /**
    * method to process one channel at a time.
    *
-   * @param imageArray   the image as a 3d array.
-   * @param channelData  channel data as a 2d array.
-   * @param channelIndex channel index.
+   * @param channelData the plane of the channel.
+   * @param channel     the channel to write the flipped plane to.
+   * @param builder     the builder of the flipped image.
    */
-  private void processChannel(int[][][] imageArray, int[][] channelData, int channelIndex) {
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        imageArray[i][j][channelIndex] = channelData[getRowIndex(i)][getColIndex(j)];
+  private void processChannel(Plane channelData, int channel, ImageBuilder builder) {
+    for (Tile tile : currentImage.getTiles()) {
+      for (int i = tile.getRow(); i < tile.getEndRow(); i++) {
+        for (int j = tile.getCol(); j < tile.getEndCol(); j++) {
+          builder.setFloat(channel, i, j, channelData.getFloat(getRowIndex(i), getColIndex(j)));
+        }
       }
     }
   }
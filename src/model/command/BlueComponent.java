@@ -35,17 +35,13 @@ class BlueComponent extends AbstractColorComponent {
   }
 
   /**
-   * Extracts the blue channel value for a specific pixel.
+   * Keeps the blue channel; the other color channels are set to zero.
    *
-   * @param x The x-coordinate of the pixel
-   * @param y The y-coordinate of the pixel
-   * @return An array containing [0, 0, blue] values
+   * @return {@link Image#BLUE}
    */
   @Override
-  protected int[] getPixel(int x, int y) {
-    int[] pixel = new int[3];
-    pixel[2] = currentImage.getBlueChannelData()[x][y];
-    return pixel;
+  protected int getChannel() {
+    return Image.BLUE;
   }
 
 }
@@ -26,9 +26,15 @@ class Brighten extends SimpleImageProcessor {
     imageName = parseString(2);
     height = currentImage.getHeight();
     width = currentImage.getWidth();
-    setTransformer((r, g, b) -> new int[]{
-        clamp(r + value),
-        clamp(g + value),
-        clamp(b + value)});
+    setTransformer((r, g, b, out) -> {
+      out[0] = clamp(r + value);
+      out[1] = clamp(g + value);
+      out[2] = clamp(b + value);
+    });
+    setFloatTransformer((r, g, b, out) -> {
+      out[0] = r + value;
+      out[1] = g + value;
+      out[2] = b + value;
+    });
   }
 }
\ No newline at end of file
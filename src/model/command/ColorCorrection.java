@@ -29,13 +29,19 @@ class ColorCorrection extends Abstract2ArgSimpleImageProcessor {
 
   public ColorCorrection(ArgumentWrapper rawArguments, Cache cache) {
     super(rawArguments, cache);
-    histogram = new Histogram(currentImage);
+    histogram = currentImage.getHistogram();
     setChannelMax();
     setAverage();
-    setTransformer((r, g, b) -> new int[]{
-        clamp(r + getChannelOffset(0)),
-        clamp(g + getChannelOffset(1)),
-        clamp(b + getChannelOffset(2))});
+    setTransformer((r, g, b, out) -> {
+      out[0] = clamp(r + getChannelOffset(0));
+      out[1] = clamp(g + getChannelOffset(1));
+      out[2] = clamp(b + getChannelOffset(2));
+    });
+    setFloatTransformer((r, g, b, out) -> {
+      out[0] = r + getChannelOffset(0);
+      out[1] = g + getChannelOffset(1);
+      out[2] = b + getChannelOffset(2);
+    });
   }
 
   /**
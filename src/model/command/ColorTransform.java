@@ -22,12 +22,15 @@ abstract class ColorTransform extends Abstract2ArgSimpleImageProcessor {
    */
 
   public ColorTransform(ArgumentWrapper rawArguments, double[][] matrix, Cache cache) {
-    super(rawArguments, cache, (r, g, b) -> {
-      int[] result = new int[3];
+    super(rawArguments, cache, (r, g, b, out) -> {
       for (int i = 0; i < 3; i++) {
-        result[i] = clamp((int) Math.round(matrix[i][0] * r + matrix[i][1] * g + matrix[i][2] * b));
+        out[i] = clamp((int) Math.round(matrix[i][0] * r + matrix[i][1] * g + matrix[i][2] * b));
+      }
+    });
+    setFloatTransformer((r, g, b, out) -> {
+      for (int i = 0; i < 3; i++) {
+        out[i] = (float) (matrix[i][0] * r + matrix[i][1] * g + matrix[i][2] * b);
       }
-      return result;
     });
   }
 }
\ No newline at end of file
@@ -3,11 +3,20 @@ package model.command;
 
 
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 import model.Cache;
+import model.Image;
+import model.Memo;
+import model.Recipe;
 import utils.arguments.ArgumentType;
 import utils.arguments.ArgumentWrapper;
+import utils.arguments.OptionalArgumentKeyword;
 import utils.arguments.Signature;
 
 
@@ -130,9 +139,21 @@ public enum CommandFactory {
             Signature.define(ArgumentType.INT,ArgumentType.INT,ArgumentType.IMAGE,ArgumentType.STRING)),
   PARTIAL_PROCESSOR(PartialProcessor.class,
           "partial-process",
-          Signature.define(ArgumentType.STRING,
-                  ArgumentType.STRING,
+          Signature.define(ArgumentType.IMAGE,
+                  ArgumentType.IMAGE,
                   ArgumentType.STRING)),
+  PIN(Pin.class,
+      "pin",
+      Signature.define(ArgumentType.STRING)),
+  UNPIN(Unpin.class,
+        "unpin",
+        Signature.define(ArgumentType.STRING)),
+  CACHE_PURGE(Purge.class,
+              "cache-purge",
+              Signature.define()),
+  CACHE_DROP(Drop.class,
+             "cache-drop",
+             Signature.define(ArgumentType.STRING)),
   ;
 
 
@@ -159,17 +180,209 @@ public enum CommandFactory {
    * arguments and executes it. This method is designed to be used within the model, ensuring that
    * no other classes outside the command package can directly access a {@code Command} object.</p>
    *
+   * <p>The results of commands that read and write images are remembered in the {@link Memo} of
+   * the cache. Running the same command with the same arguments on the same pixels again sets the
+   * remembered results without executing the command.</p>
+   *
    * @param args the arguments to be passed to the command constructor.
    */
   public void executeCommandWith(ArgumentWrapper args, Cache cache) {
     if (this == CommandFactory.NONE) {
       throw new IllegalStateException("Illegal state: No command has been assigned to Model.");
     }
-    Command
-        c =
-        instantiateCommand(args,
-                           cache);
-    c.execute();
+    List<String> outputs = new ArrayList<>();
+    String key = readsAndWrites(args, new ArrayList<>(), outputs) ? memoKey(args, cache) : null;
+    if (key == null) {
+      instantiateCommand(args, cache).execute();
+      return;
+    }
+
+    Memo memo = cache.getMemo();
+    List<Object> results = memo.recall(key);
+    if (results != null) {
+      for (int i = 0; i < outputs.size(); i++) {
+        if (results.get(i) instanceof model.Histogram) {
+          cache.set(outputs.get(i), (model.Histogram) results.get(i));
+        }
+        else {
+          cache.set(outputs.get(i), (Image) results.get(i));
+        }
+      }
+      return;
+    }
+    instantiateCommand(args, cache).execute();
+    results = new ArrayList<>();
+    for (String output : outputs) {
+      results.add(cache.isHistogram(output) ? cache.getHistogram(output) : cache.get(output));
+    }
+    memo.remember(key, results);
+  }
+
+  /**
+   * Defers a command with the specified arguments.
+   *
+   * <p>Instead of executing the command, a {@link Recipe} is set in the cache for every name the
+   * command writes, and the command is executed the first time one of them is read. Commands that
+   * read or write no image, such as {@code pin}, and arguments that do not match the signature are
+   * executed right away.</p>
+   *
+   * @param args  the arguments to be passed to the command constructor.
+   * @param cache the cache to read and write the images of the command.
+   */
+  public void deferCommandWith(ArgumentWrapper args, Cache cache) {
+    List<String> inputs = new ArrayList<>();
+    List<String> outputs = new ArrayList<>();
+    if (this == CommandFactory.NONE || !readsAndWrites(args, inputs, outputs)) {
+      executeCommandWith(args, cache);
+      return;
+    }
+    cache.set(new Recipe(this, args, inputs, outputs));
+  }
+
+  /**
+   * Executes a chain of per-pixel commands, each reading the result of the one before, as one
+   * pass over the image the first command reads, see {@link #isPointOperation()}.
+   *
+   * <p>Only the names in {@code materialized} get an image; the results of the other commands
+   * are never stored. Nothing is written to the cache unless the whole chain is valid, so a chain
+   * that is rejected can be executed again one command at a time to report its error.</p>
+   *
+   * @param commands     the commands of the chain.
+   * @param args         the arguments of each command.
+   * @param materialized the names to write images for.
+   * @param cache        the cache to read and write the images of the chain.
+   * @throws IllegalArgumentException if a command is not a point operation, has optional arguments
+   *                                  or does not read the result of the command before it, or if
+   *                                  its arguments are invalid.
+   * @throws NoSuchElementException   if the first image is not in the cache.
+   */
+  public static void executeFusedWith(List<CommandFactory> commands, List<ArgumentWrapper> args,
+                                      Set<String> materialized, Cache cache) {
+    if (commands.isEmpty() || commands.size() != args.size()) {
+      throw new IllegalArgumentException("Expected one argument list per command.");
+    }
+    // The steps are constructed against a view where every input is the first image; they only
+    // read its size, and their transformers do not depend on it.
+    Cache view = new Cache();
+    Image source = null;
+    List<SimpleImageProcessor> steps = new ArrayList<>();
+    List<String> outputs = new ArrayList<>();
+    for (int k = 0; k < commands.size(); k++) {
+      CommandFactory command = commands.get(k);
+      List<String> inputs = new ArrayList<>();
+      List<String> written = new ArrayList<>();
+      if (!command.isPointOperation()
+          || !command.readsAndWrites(args.get(k), inputs, written)
+          || inputs.size() != 1 || written.size() != 1 || hasSplit(args.get(k))) {
+        throw new IllegalArgumentException(
+            "Command " + command.getCommandName() + " cannot be fused.");
+      }
+      if (k == 0) {
+        source = cache.get(inputs.get(0));
+      }
+      else if (!inputs.get(0).equals(outputs.get(k - 1))) {
+        throw new IllegalArgumentException("Command " + command.getCommandName()
+                                           + " does not read the result of the one before.");
+      }
+      view.set(inputs.get(0), source);
+      steps.add((SimpleImageProcessor) command.instantiateCommand(args.get(k), view));
+      outputs.add(written.get(0));
+    }
+    new FusedProcessor(source, steps, outputs, materialized, cache).execute();
+  }
+
+  /**
+   * Checks whether the command transforms every pixel on its own, from the pixel alone, so it can
+   * be fused with the commands before and after it, see
+   * {@link #executeFusedWith(List, List, Set, Cache)}.
+   *
+   * @return true for point operations such as brighten, sepia and levels-adjust.
+   */
+  public boolean isPointOperation() {
+    // color-correct depends on the histogram of its whole input.
+    return commandClass != null && SimpleImageProcessor.class.isAssignableFrom(commandClass)
+           && commandClass != ColorCorrection.class;
+  }
+
+  /**
+   * Checks whether a command is given a split.
+   *
+   * @param args the arguments of the command.
+   * @return true if the split argument is given.
+   */
+  private static boolean hasSplit(ArgumentWrapper args) {
+    try {
+      args.getIntArgument(OptionalArgumentKeyword.SPLIT);
+      return true;
+    } catch (IndexOutOfBoundsException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Finds the names a command reads and writes from its signature: {@code IMAGE} arguments (and
+   * the optional mask image) are read, {@code STRING} arguments are written.
+   *
+   * @param args    the arguments of the command.
+   * @param inputs  the list to add the names read to.
+   * @param outputs the list to add the names written to.
+   * @return true if the arguments match the signature and the command reads and writes images.
+   */
+  private boolean readsAndWrites(ArgumentWrapper args, List<String> inputs, List<String> outputs) {
+    if (args.length() != signature.getLength()) {
+      return false;
+    }
+    for (int i = 0; i < signature.getLength(); i++) {
+      if (!signature.validateArgument(i, args.getArgumentAt(i))) {
+        return false;
+      }
+      if (signature.getSignatureAt(i) == ArgumentType.IMAGE) {
+        inputs.add(args.getStringArgument(i));
+      }
+      else if (signature.getSignatureAt(i) == ArgumentType.STRING) {
+        outputs.add(args.getStringArgument(i));
+      }
+    }
+    try {
+      inputs.add(args.getStringArgument(OptionalArgumentKeyword.MASKIMG));
+    } catch (IndexOutOfBoundsException ignored) {
+      // No mask image.
+    }
+    return !inputs.isEmpty() && !outputs.isEmpty();
+  }
+
+  /**
+   * Builds the {@link Memo} key of a command: its name and its arguments, where input images are
+   * replaced by their content keys and the names written are left out.
+   *
+   * @param args  the arguments of the command.
+   * @param cache the cache holding the inputs.
+   * @return the key, or null if an argument is invalid, so the command reports the error itself.
+   */
+  private String memoKey(ArgumentWrapper args, Cache cache) {
+    List<String> key = new ArrayList<>();
+    try {
+      for (int i = 0; i < signature.getLength(); i++) {
+        ArgumentType type = signature.getSignatureAt(i);
+        key.add(type == ArgumentType.IMAGE
+                ? "#" + cache.get(args.getStringArgument(i)).getContentKey()
+                : type == ArgumentType.STRING
+                  ? "_"
+                  : String.valueOf(args.getArgumentAt(i).getArgumentValue()));
+      }
+      for (OptionalArgumentKeyword keyword : OptionalArgumentKeyword.values()) {
+        try {
+          key.add(keyword.getArgumentName() + "=" + (keyword.getType() == ArgumentType.IMAGE
+              ? "#" + cache.get(args.getStringArgument(keyword)).getContentKey()
+              : String.valueOf(args.getIntArgument(keyword))));
+        } catch (IndexOutOfBoundsException ignored) {
+          // Not given.
+        }
+      }
+    } catch (NoSuchElementException | IllegalArgumentException e) {
+      return null;
+    }
+    return Memo.key(commandName, key);
   }
 
   /**
@@ -198,6 +411,21 @@ public enum CommandFactory {
     return map;
   }
 
+  /**
+   * Gets the names of the commands that are point operations, see {@link #isPointOperation()}.
+   *
+   * @return the names.
+   */
+  public static Set<String> getPointOperations() {
+    Set<String> names = new HashSet<>();
+    for (CommandFactory command : CommandFactory.values()) {
+      if (command.isPointOperation()) {
+        names.add(command.getCommandName());
+      }
+    }
+    return names;
+  }
+
   /**
    * Gets the command associated with this enum constant.
    *
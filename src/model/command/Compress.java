@@ -6,6 +6,7 @@ import java.util.Collections;
 import java.util.List;
 import model.Cache;
 import model.Image;
+import model.ImageBuilder;
 import utils.arguments.ArgumentWrapper;
 
 /**
@@ -18,8 +19,6 @@ public class Compress extends AbstractCommand {
 
   private final int compressionRatio;
   private static final int BLACK_THRESHOLD = 10;
-  private static final int MAX_COLOR_VALUE = 255;
-  private static final int MIN_COLOR_VALUE = 0;
 
   /**
    * Constructs a new Compress processor.
@@ -61,86 +60,53 @@ public class Compress extends AbstractCommand {
   }
 
   /**
-   * Executes the compression operation on all color channels of the image.
+   * Executes the compression operation on all color channels of the image. The reconstructed
+   * channels are written straight into planes in the storage of the current image.
    */
   @Override
   public void execute() {
-    int[][][]
-        imageArray =
-        combineChannels(processColorChannel(currentImage.getRedChannelData()),
-                        processColorChannel(currentImage.getGreenChannelData()),
-                        processColorChannel(currentImage.getBlueChannelData()));
-    cache.set(imageName, new Image(imageArray));
+    ImageBuilder builder = new ImageBuilder(currentImage.getHeight(),
+                                            currentImage.getWidth(),
+                                            3,
+                                            currentImage.getStorage());
+    processColorChannel(Image.RED, builder);
+    processColorChannel(Image.GREEN, builder);
+    processColorChannel(Image.BLUE, builder);
+    cache.set(imageName, builder.build());
   }
 
   /**
    * Processes a single color channel through the wavelet transform and compression.
    *
-   * @param channelData The 2D array representing one color channel
-   * @return The processed channel data after compression and reconstruction
+   * @param channel The color channel of the current image to process
+   * @param builder The builder the reconstructed channel is written to
    */
 
-  private int[][] processColorChannel(int[][] channelData) {
-    double[][] transform = haar2D(arrayConverter.toDouble(channelData));
+  private void processColorChannel(int channel, ImageBuilder builder) {
+    double[][] transform = haar2D(arrayConverter.toDouble(currentImage, channel));
     zeroSmallestPercentage(transform, compressionRatio, BLACK_THRESHOLD);
-    return arrayConverter.toInt(haar2DInverse(transform));
-  }
-
-  /**
-   * Combines separate color channels into a single RGB image array.
-   *
-   * @param red   The processed red channel data
-   * @param green The processed green channel data
-   * @param blue  The processed blue channel data
-   * @return A 3D array representing the combined RGB image
-   */
-
-  private int[][][] combineChannels(int[][] red, int[][] green, int[][] blue) {
-    int height = currentImage.getHeight();
-    int width = currentImage.getWidth();
-    int[][][] result = new int[height][width][3];
-
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        result[i][j][0] = clamp(red[i][j]);
-        result[i][j][1] = clamp(green[i][j]);
-        result[i][j][2] = clamp(blue[i][j]);
-      }
-    }
-    return result;
-  }
-
-  /**
-   * method to clamp values between 0 and 255. to prevent them from going out of bound.
-   *
-   * @param value to be clamped.
-   * @return clamped value.
-   */
-  private static int clamp(int value) {
-    return Math.min(Compress.MAX_COLOR_VALUE, Math.max(Compress.MIN_COLOR_VALUE, value));
+    arrayConverter.toChannel(haar2DInverse(transform), channel, builder);
   }
 
   // Array conversion utility class
   private static class ArrayConverter {
 
-    public double[][] toDouble(int[][] array) {
-      double[][] result = new double[array.length][array[0].length];
-      for (int i = 0; i < array.length; i++) {
-        for (int j = 0; j < array[0].length; j++) {
-          result[i][j] = array[i][j];
+    public double[][] toDouble(Image image, int channel) {
+      double[][] result = new double[image.getHeight()][image.getWidth()];
+      for (int i = 0; i < image.getHeight(); i++) {
+        for (int j = 0; j < image.getWidth(); j++) {
+          result[i][j] = image.getFloat(channel, i, j);
         }
       }
       return result;
     }
 
-    public int[][] toInt(double[][] array) {
-      int[][] result = new int[array.length][array[0].length];
-      for (int i = 0; i < array.length; i++) {
-        for (int j = 0; j < array[0].length; j++) {
-          result[i][j] = (int) Math.round(array[i][j]);
+    public void toChannel(double[][] array, int channel, ImageBuilder builder) {
+      for (int i = 0; i < builder.getHeight(); i++) {
+        for (int j = 0; j < builder.getWidth(); j++) {
+          builder.setFloat(channel, i, j, array[i][j]);
         }
       }
-      return result;
     }
   }
 
@@ -2,6 +2,7 @@ package model.command;
 
 import model.Cache;
 import model.Image;
+import model.ImageBuilder;
 import utils.arguments.ArgumentWrapper;
 
 /**
@@ -13,7 +14,6 @@ public class Downscale extends AbstractCommand {
   private int tWidth;
   private final int height;
   private final int width;
-  int[][][] imageArray;
 
   /**
    * Constructs a new Filter with the specified filter kernel.
@@ -37,7 +37,6 @@ public class Downscale extends AbstractCommand {
     if (tHeight > height || tHeight < 1 || tWidth > width || tWidth < 1) {
       throw new IllegalArgumentException("Invalid input dimensions!");
     }
-    imageArray = new int[tHeight][tWidth][currentImage.getNoOfChannels()];
   }
 
   /**
@@ -48,6 +47,10 @@ public class Downscale extends AbstractCommand {
     double newRed = 0;
     double newGreen = 0;
     double newBlue = 0;
+    ImageBuilder builder = new ImageBuilder(tHeight,
+                                            tWidth,
+                                            currentImage.getNoOfChannels(),
+                                            currentImage.getStorage());
 
     for (int i = 0; i < tHeight; i++) { // y' coordinate
       for (int j = 0; j < tWidth; j++) { // x' coordinate
@@ -57,12 +60,12 @@ public class Downscale extends AbstractCommand {
 
         if ((Math.floor(iOrigin) == iOrigin && Math.ceil(iOrigin) == iOrigin) && (
             Math.floor(jOrigin) == jOrigin && Math.ceil(jOrigin) == jOrigin)) {
-          newRed = currentImage.getRedChannelData()[(int) iOrigin][(int) jOrigin];
-          newGreen = currentImage.getGreenChannelData()[(int) iOrigin][(int) jOrigin];
-          newBlue = currentImage.getBlueChannelData()[(int) iOrigin][(int) jOrigin];
-          imageArray[i][j][0] = (int) newRed;
-          imageArray[i][j][1] = (int) newGreen;
-          imageArray[i][j][2] = (int) newBlue;
+          newRed = currentImage.getRed((int) iOrigin, (int) jOrigin);
+          newGreen = currentImage.getGreen((int) iOrigin, (int) jOrigin);
+          newBlue = currentImage.getBlue((int) iOrigin, (int) jOrigin);
+          builder.set(Image.RED, i, j, (int) newRed);
+          builder.set(Image.GREEN, i, j, (int) newGreen);
+          builder.set(Image.BLUE, i, j, (int) newBlue);
 
         }
         // rows => height => i => y
@@ -84,10 +87,10 @@ public class Downscale extends AbstractCommand {
           }
           int
               aRed =
-              currentImage.getRedChannelData()[(int) Math.floor(iOrigin)][(int) Math.floor(jOrigin)];
-          int bRed = currentImage.getRedChannelData()[(int) Math.floor(iOrigin)][ceilJOrigin];
-          int cRed = currentImage.getRedChannelData()[ceilIOrigin][(int) Math.floor(jOrigin)];
-          int dRed = currentImage.getRedChannelData()[ceilIOrigin][ceilJOrigin];
+              currentImage.getRed((int) Math.floor(iOrigin), (int) Math.floor(jOrigin));
+          int bRed = currentImage.getRed((int) Math.floor(iOrigin), ceilJOrigin);
+          int cRed = currentImage.getRed(ceilIOrigin, (int) Math.floor(jOrigin));
+          int dRed = currentImage.getRed(ceilIOrigin, ceilJOrigin);
 
           double mRed = bRed * (jOrigin - Math.floor(jOrigin)) + aRed * (ceilJOrigin - jOrigin);
           double nRed = dRed * (jOrigin - Math.floor(jOrigin)) + cRed * (ceilJOrigin - jOrigin);
@@ -97,10 +100,10 @@ public class Downscale extends AbstractCommand {
 
           int
               aGreen =
-              currentImage.getGreenChannelData()[(int) Math.floor(iOrigin)][(int) Math.floor(jOrigin)];
-          int bGreen = currentImage.getGreenChannelData()[(int) Math.floor(iOrigin)][ceilJOrigin];
-          int cGreen = currentImage.getGreenChannelData()[ceilIOrigin][(int) Math.floor(jOrigin)];
-          int dGreen = currentImage.getGreenChannelData()[ceilIOrigin][ceilJOrigin];
+              currentImage.getGreen((int) Math.floor(iOrigin), (int) Math.floor(jOrigin));
+          int bGreen = currentImage.getGreen((int) Math.floor(iOrigin), ceilJOrigin);
+          int cGreen = currentImage.getGreen(ceilIOrigin, (int) Math.floor(jOrigin));
+          int dGreen = currentImage.getGreen(ceilIOrigin, ceilJOrigin);
           double
               mGreen =
               bGreen * (jOrigin - Math.floor(jOrigin)) + aGreen * (ceilJOrigin - jOrigin);
@@ -113,25 +116,25 @@ public class Downscale extends AbstractCommand {
 
           int
               aBlue =
-              currentImage.getBlueChannelData()[(int) Math.floor(iOrigin)][(int) Math.floor(jOrigin)];
-          int bBlue = currentImage.getBlueChannelData()[(int) Math.floor(iOrigin)][ceilJOrigin];
-          int cBlue = currentImage.getBlueChannelData()[ceilIOrigin][(int) Math.floor(jOrigin)];
-          int dBlue = currentImage.getBlueChannelData()[ceilIOrigin][ceilJOrigin];
+              currentImage.getBlue((int) Math.floor(iOrigin), (int) Math.floor(jOrigin));
+          int bBlue = currentImage.getBlue((int) Math.floor(iOrigin), ceilJOrigin);
+          int cBlue = currentImage.getBlue(ceilIOrigin, (int) Math.floor(jOrigin));
+          int dBlue = currentImage.getBlue(ceilIOrigin, ceilJOrigin);
           double mBlue = bBlue * (jOrigin - Math.floor(jOrigin)) + aBlue * (ceilJOrigin - jOrigin);
           double nBlue = dBlue * (jOrigin - Math.floor(jOrigin)) + cBlue * (ceilJOrigin - jOrigin);
           int
               pBlue =
               (int) (nBlue * (iOrigin - Math.floor(iOrigin)) + mBlue * (ceilIOrigin - iOrigin));
 
-          imageArray[i][j][0] = pRed;
-          imageArray[i][j][1] = pGreen;
-          imageArray[i][j][2] = pBlue;
+          builder.set(Image.RED, i, j, pRed);
+          builder.set(Image.GREEN, i, j, pGreen);
+          builder.set(Image.BLUE, i, j, pBlue);
 
         }
 
       }
     }
-    Image processedImage = new Image(imageArray);
+    Image processedImage = builder.build();
     cache.set(imageName, processedImage);
   }
 
@@ -0,0 +1,37 @@
+package model.command;
+
+import model.Cache;
+import utils.arguments.ArgumentWrapper;
+
+/**
+ * Drops an image or histogram from the cache, freeing its memory, together with the remembered
+ * results holding its planes (see {@link Cache#remove(String)}). Images sharing its planes keep
+ * them.
+ */
+class Drop extends AbstractCommand {
+
+  private final String name;
+
+  /**
+   * Constructs a new Drop command.
+   *
+   * @param rawArguments The command arguments containing the name of the entry
+   * @param cache        The cache storing the images
+   * @throws IllegalArgumentException if the number of arguments is not exactly 1
+   */
+  public Drop(ArgumentWrapper rawArguments, Cache cache) {
+    super(rawArguments, cache);
+    if (numberOfArgs() != 1) {
+      throw new IllegalArgumentException("Expected 1 argument.");
+    }
+    name = parseString(0);
+  }
+
+  /**
+   * Drops the entry.
+   */
+  @Override
+  public void execute() {
+    cache.remove(name);
+  }
+}
@@ -2,6 +2,8 @@ package model.command;
 
 import model.Cache;
 import model.Image;
+import model.ImageBuilder;
+import model.RowBands;
 import utils.arguments.ArgumentWrapper;
 
 /**
@@ -11,6 +13,11 @@ import utils.arguments.ArgumentWrapper;
  */
 abstract class Filter extends ImageProcessor {
 
+  /**
+   * The number of rows a band convolves from one window.
+   */
+  private static final int STRIP = 32;
+
   private final double[][] filter;
   private final int filterRows;
   private final int filterColumns;
@@ -39,54 +46,77 @@ abstract class Filter extends ImageProcessor {
   }
 
   /**
-   * Processes the image by applying the convolution filter. Handles padding and maintains image
-   * boundaries.
+   * Processes the image by applying the convolution filter. The rows are split into bands that run
+   * in parallel on large images, see {@link RowBands}. Each band convolves {@link #STRIP} rows at a
+   * time from its own window: a copy of the source rows the strip reads, with a border of zeros
+   * for samples outside the image. The bands only read the shared current image and write their
+   * own rows, and every sum is taken in the same order as on a single thread, so the result does
+   * not depend on how the rows are split.
+   * <br>
+   * The kernel reads the planes of the current image with full precision. The sums are only
+   * rounded if the result is kept in 8-bit planes, see {@link ImageBuilder#setFloat}.
    */
   @Override
   protected void processImage() {
-
-    int[][] redChannelDataPadded = createAndFillPaddedChannel(currentImage.getRedChannelData());
-    int[][] greenChannelDataPadded = createAndFillPaddedChannel(currentImage.getGreenChannelData());
-    int[][] blueChannelDataPadded = createAndFillPaddedChannel(currentImage.getBlueChannelData());
-
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < workingWidth; j++) {
-        double sumRed = 0;
-        double sumGreen = 0;
-        double sumBlue = 0;
-        for (int a = 0; a < filterRows; a++) {
-          for (int b = 0; b < filterColumns; b++) {
-            sumRed += redChannelDataPadded[i + a][j + b] * filter[a][b];
-            sumGreen += greenChannelDataPadded[i + a][j + b] * filter[a][b];
-            sumBlue += blueChannelDataPadded[i + a][j + b] * filter[a][b];
+    ImageBuilder builder = createBuilder();
+    if (workingWidth > 0) {
+      builder.prepare();
+    }
+    RowBands.forEach(height, workingWidth, (startRow, endRow) -> {
+      int stride = workingWidth + filterColumns - 1;
+      float[][] window = new float[3][(STRIP + filterRows - 1) * stride];
+      for (int strip = startRow; strip < endRow; strip += STRIP) {
+        int stripEnd = Math.min(endRow, strip + STRIP);
+        fillWindow(window, strip, stripEnd - strip + filterRows - 1, stride);
+        for (int i = strip; i < stripEnd; i++) {
+          for (int j = 0; j < workingWidth; j++) {
+            double sumRed = 0;
+            double sumGreen = 0;
+            double sumBlue = 0;
+            for (int a = 0; a < filterRows; a++) {
+              int offset = (i - strip + a) * stride + j;
+              for (int b = 0; b < filterColumns; b++) {
+                sumRed += window[Image.RED][offset + b] * filter[a][b];
+                sumGreen += window[Image.GREEN][offset + b] * filter[a][b];
+                sumBlue += window[Image.BLUE][offset + b] * filter[a][b];
+              }
+            }
+            builder.setFloat(Image.RED, i, j, sumRed);
+            builder.setFloat(Image.GREEN, i, j, sumGreen);
+            builder.setFloat(Image.BLUE, i, j, sumBlue);
           }
         }
-        imageArray[i][j][0] = Math.min(255, Math.max(0, (int) Math.round(sumRed)));
-        imageArray[i][j][1] = Math.min(255, Math.max(0, (int) Math.round(sumGreen)));
-        imageArray[i][j][2] = Math.min(255, Math.max(0, (int) Math.round(sumBlue)));
       }
-    }
+    });
 
-    Image processedImage = new Image(imageArray);
+    Image processedImage = builder.build();
     cache.set(imageName, processedImage);
   }
 
   /**
-   * method to pad channel if required.
+   * Copies the source rows read by a strip into a window. Window row {@code r} holds image row
+   * {@code strip + r - filterRows / 2} and window column {@code c} image column
+   * {@code c - filterColumns / 2}; samples outside the image are 0, which adds nothing to a sum.
    *
-   * @param sourceChannel original 2d array of the channel.
-   * @return new padded channel.
+   * @param window the window, one array per channel.
+   * @param strip  the first row of the strip.
+   * @param rows   the number of window rows to fill.
+   * @param stride the number of window columns.
    */
-  private int[][] createAndFillPaddedChannel(int[][] sourceChannel) {
-    // padding size
+  private void fillWindow(float[][] window, int strip, int rows, int stride) {
     int padRowSize = filterRows / 2;
     int padColSize = filterColumns / 2;
-
-    int[][] paddedChannel = new int[height + 2 * padRowSize][width + 2 * padColSize];
-    for (int i = 0; i < sourceChannel.length; i++) {
-      System.arraycopy(sourceChannel[i], 0, paddedChannel[i + padRowSize], padColSize, width);
+    for (int r = 0; r < rows; r++) {
+      int row = strip + r - padRowSize;
+      for (int c = 0; c < stride; c++) {
+        int col = c - padColSize;
+        boolean inside = row >= 0 && row < height && col >= 0 && col < width;
+        for (int channel = 0; channel < 3; channel++) {
+          window[channel][r * stride + c] =
+              inside ? currentImage.getFloat(channel, row, col) : 0;
+        }
+      }
     }
-    return paddedChannel;
   }
 
 }
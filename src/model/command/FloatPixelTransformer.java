@@ -0,0 +1,34 @@
+package model.command;
+
+/**
+ * The full precision variant of a {@link PixelTransformer}, used when the source image is kept in
+ * {@link model.Storage#FLOAT}. The values are neither rounded nor clamped, so a chain of commands
+ * on a float image only quantizes its samples when the result is saved or displayed.
+ *
+ * <p>Example usage for increasing brightness:
+ * <pre>
+ * FloatPixelTransformer brighten = (r, g, b, out) -&gt; {
+ *     out[0] = r + 50;
+ *     out[1] = g + 50;
+ *     out[2] = b + 50;
+ * };
+ * </pre>
+ *
+ * @see SimpleImageProcessor
+ */
+interface FloatPixelTransformer {
+
+  /**
+   * Transforms a single pixel's RGB values with full precision.
+   *
+   * <p>Like {@link PixelTransformer#transformPixel(int, int, int, int[])}, the implementation
+   * writes the transformed values into {@code out}, must not keep a reference to it and must not
+   * change any state.
+   *
+   * @param r   the red component value of the pixel
+   * @param g   the green component value of the pixel
+   * @param b   the blue component value of the pixel
+   * @param out a float array of at least length 3 that receives the transformed [R, G, B] values
+   */
+  void transformPixel(float r, float g, float b, float[] out);
+}
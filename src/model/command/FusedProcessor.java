@@ -0,0 +1,157 @@
+package model.command;
+
+import java.util.List;
+import java.util.Set;
+import model.Cache;
+import model.Image;
+import model.ImageBuilder;
+import model.RowBands;
+import model.Storage;
+import model.Tile;
+
+/**
+ * Runs a chain of per-pixel commands, each reading the result of the one before, as a single pass
+ * over the source image. Every pixel goes through the transformers of all steps in order, and only
+ * the results that are used later are written to an image; the others are never stored.
+ * <br>
+ * Each step receives the clamped result of the step before, exactly as it would read it back from
+ * the image written by that step, so the images written are the same as when the commands run
+ * one by one. A source kept in {@link Storage#FLOAT} goes through the float transformers of the
+ * steps instead, without rounding or clamping, if every step has one.
+ */
+class FusedProcessor implements Command {
+
+  private final Image source;
+  private final PixelTransformer[] transformers;
+  // Null unless the source is a float image and every step has a float transformer.
+  private final FloatPixelTransformer[] floatTransformers;
+  private final List<String> outputs;
+  private final Set<String> materialized;
+  private final Cache cache;
+
+  /**
+   * Constructs a fused chain.
+   *
+   * @param source       the image the first step reads.
+   * @param steps        the steps, each reading the result of the one before.
+   * @param outputs      the name each step writes.
+   * @param materialized the names to write images for. If a name is written by several steps, the
+   *                     image of the last one is written.
+   * @param cache        the cache to write the images to.
+   */
+  FusedProcessor(Image source, List<SimpleImageProcessor> steps, List<String> outputs,
+                 Set<String> materialized, Cache cache) {
+    this.source = source;
+    this.transformers = new PixelTransformer[steps.size()];
+    FloatPixelTransformer[] floats = new FloatPixelTransformer[steps.size()];
+    boolean exact = source.getStorage() == Storage.FLOAT;
+    for (int k = 0; k < steps.size(); k++) {
+      transformers[k] = steps.get(k).getTransformer();
+      floats[k] = steps.get(k).getFloatTransformer();
+      exact &= floats[k] != null;
+    }
+    this.floatTransformers = exact ? floats : null;
+    this.outputs = outputs;
+    this.materialized = materialized;
+    this.cache = cache;
+  }
+
+  /**
+   * Transforms the source once and writes the materialized results to the cache, in the order of
+   * the steps.
+   */
+  @Override
+  public void execute() {
+    int height = source.getHeight();
+    int width = source.getWidth();
+    ImageBuilder[] builders = new ImageBuilder[transformers.length];
+    for (int k = 0; k < transformers.length; k++) {
+      if (materialized.contains(outputs.get(k))
+          && outputs.lastIndexOf(outputs.get(k)) == k) {
+        builders[k] = new ImageBuilder(height, width, 3, source.getStorage());
+        builders[k].prepare();
+      }
+    }
+
+    if (floatTransformers != null) {
+      transformFloats(builders);
+    }
+    else {
+      transform(builders);
+    }
+
+    for (int k = 0; k < transformers.length; k++) {
+      if (builders[k] != null) {
+        cache.set(outputs.get(k), builders[k].build());
+      }
+    }
+  }
+
+  /**
+   * Runs every pixel through the transformers of the steps, clamping the result of each step.
+   *
+   * @param builders the builders of the materialized results, null for the others.
+   */
+  private void transform(ImageBuilder[] builders) {
+    int height = source.getHeight();
+    int width = source.getWidth();
+    RowBands.forEach(height, width, (startRow, endRow) -> {
+      int[] pixel = new int[3];
+      for (int col = 0; col < width; col += Tile.SIZE) {
+        int endCol = Math.min(width, col + Tile.SIZE);
+        for (int i = startRow; i < endRow; i++) {
+          for (int j = col; j < endCol; j++) {
+            int r = source.getValue(Image.RED, i, j);
+            int g = source.getValue(Image.GREEN, i, j);
+            int b = source.getValue(Image.BLUE, i, j);
+            for (int k = 0; k < transformers.length; k++) {
+              transformers[k].transformPixel(r, g, b, pixel);
+              r = ImageProcessor.clamp(pixel[0]);
+              g = ImageProcessor.clamp(pixel[1]);
+              b = ImageProcessor.clamp(pixel[2]);
+              if (builders[k] != null) {
+                builders[k].set(Image.RED, i, j, r);
+                builders[k].set(Image.GREEN, i, j, g);
+                builders[k].set(Image.BLUE, i, j, b);
+              }
+            }
+          }
+        }
+      }
+    });
+  }
+
+  /**
+   * Runs every pixel through the float transformers of the steps with full precision.
+   *
+   * @param builders the builders of the materialized results, null for the others.
+   */
+  private void transformFloats(ImageBuilder[] builders) {
+    int height = source.getHeight();
+    int width = source.getWidth();
+    RowBands.forEach(height, width, (startRow, endRow) -> {
+      float[] pixel = new float[3];
+      for (int col = 0; col < width; col += Tile.SIZE) {
+        int endCol = Math.min(width, col + Tile.SIZE);
+        for (int i = startRow; i < endRow; i++) {
+          for (int j = col; j < endCol; j++) {
+            float r = source.getFloat(Image.RED, i, j);
+            float g = source.getFloat(Image.GREEN, i, j);
+            float b = source.getFloat(Image.BLUE, i, j);
+            for (int k = 0; k < floatTransformers.length; k++) {
+              floatTransformers[k].transformPixel(r, g, b, pixel);
+              r = pixel[0];
+              g = pixel[1];
+              b = pixel[2];
+              if (builders[k] != null) {
+                builders[k].setFloat(Image.RED, i, j, r);
+                builders[k].setFloat(Image.GREEN, i, j, g);
+                builders[k].setFloat(Image.BLUE, i, j, b);
+              }
+            }
+          }
+        }
+      }
+    });
+  }
+}
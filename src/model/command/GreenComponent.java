@@ -35,17 +35,13 @@ class GreenComponent extends AbstractColorComponent {
   }
 
   /**
-   * Extracts the green channel value for a specific pixel.
+   * Keeps the green channel; the other color channels are set to zero.
    *
-   * @param x The x-coordinate of the pixel
-   * @param y The y-coordinate of the pixel
-   * @return An array containing [0, green, 0] values
+   * @return {@link Image#GREEN}
    */
   @Override
-  protected int[] getPixel(int x, int y) {
-    int[] pixel = new int[3];
-    pixel[1] = currentImage.getGreenChannelData()[x][y];
-    return pixel;
+  protected int getChannel() {
+    return Image.GREEN;
   }
 
 }
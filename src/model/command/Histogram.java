@@ -25,12 +25,13 @@ class Histogram extends Abstract2ArgCommand {
   }
 
   /**
-   * Executes the histogram generation by creating a new Histogram object from the source image and
-   * storing it in the cache. The resulting histogram contains frequency counts for each possible
-   * pixel value (0-255) for each color channel.
+   * Executes the histogram generation by storing the histogram of the source image in the cache.
+   * The histogram is only computed the first time it is needed for an image. The resulting
+   * histogram contains frequency counts for each possible pixel value (0-255) for each color
+   * channel.
    */
   @Override
   public void execute() {
-    cache.set(imageName, new model.Histogram(currentImage));
+    cache.set(imageName, currentImage.getHistogram());
   }
 }
@@ -2,6 +2,7 @@ package model.command;
 
 import model.Cache;
 import model.Image;
+import model.ImageBuilder;
 import utils.arguments.ArgumentWrapper;
 import utils.arguments.OptionalArgumentKeyword;
 
@@ -36,11 +37,10 @@ import utils.arguments.OptionalArgumentKeyword;
  *     public void execute() {
  *         processImage(new PixelTransformer() {
  *             {@literal @}Override
- *             public int[] transformPixel(int r, int g, int b) {
- *                 int newRed = clamp((int)(0.393*r + 0.769*g + 0.189*b));
- *                 int newGreen = clamp((int)(0.349*r + 0.686*g + 0.168*b));
- *                 int newBlue = clamp((int)(0.272*r + 0.534*g + 0.131*b));
- *                 return new int[]{newRed, newGreen, newBlue};
+ *             public void transformPixel(int r, int g, int b, int[] out) {
+ *                 out[0] = clamp((int)(0.393*r + 0.769*g + 0.189*b));
+ *                 out[1] = clamp((int)(0.349*r + 0.686*g + 0.168*b));
+ *                 out[2] = clamp((int)(0.272*r + 0.534*g + 0.131*b));
  *             }
  *         });
  *     }
@@ -57,8 +57,6 @@ abstract class ImageProcessor extends AbstractCommand {
   protected int width;
   protected int split = 100;
 
-  protected int[][][] imageArray;
-
   /**
    * Constructs a new ImageProcessor with the specified raw arguments.
    *
@@ -88,10 +86,10 @@ abstract class ImageProcessor extends AbstractCommand {
    *
    * <p>The method:
    * <ul>
-   *   <li>Creates a new image array with the same dimensions
+   *   <li>Creates an {@code ImageBuilder} in the storage of the current image
    *   <li>Iterates through each pixel
-   *   <li>Applies the transformer to each pixel
-   *   <li>Creates a new image from the transformed data
+   *   <li>Applies the transformer to each pixel and writes the result to the builder
+   *   <li>Builds the new image from the written planes
    *   <li>Stores the result in the image cache
    * </ul>
    *
@@ -99,6 +97,19 @@ abstract class ImageProcessor extends AbstractCommand {
    */
   protected abstract void processImage();
 
+  /**
+   * Creates a builder for the red, green and blue channels of the result of this processor, in the
+   * storage of the current image. With a split, the builder starts from the current image so the
+   * columns beyond the working width keep their original values.
+   *
+   * @return the image builder.
+   */
+  protected ImageBuilder createBuilder() {
+    return (split < 100)
+        ? new ImageBuilder(currentImage, 3)
+        : new ImageBuilder(height, width, 3, currentImage.getStorage());
+  }
+
   /**
    * Clamps a value to the valid pixel intensity range [0, 255]. This utility method ensures that
    * color values stay within the valid bounds for image data.
@@ -141,7 +152,6 @@ abstract class ImageProcessor extends AbstractCommand {
       throw new IllegalStateException("Internal error: width not set.");
     }
     workingWidth = (int) ((double) split / 100 * width);
-    imageArray = (split < 100) ? currentImage.getImageArray().clone() : new int[height][width][3];
   }
 
 }
\ No newline at end of file
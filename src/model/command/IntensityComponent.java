@@ -20,12 +20,17 @@ class IntensityComponent extends Abstract2ArgSimpleImageProcessor {
    */
 
   public IntensityComponent(ArgumentWrapper rawArguments, Cache cache) {
-    super(rawArguments, cache, (r, g, b) -> {
+    super(rawArguments, cache, (r, g, b, out) -> {
       int intensity = clamp((int) Math.round((r + g + b) / 3.0));
-      return new int[]{
-          intensity,
-          intensity,
-          intensity};
+      out[0] = intensity;
+      out[1] = intensity;
+      out[2] = intensity;
+    });
+    setFloatTransformer((r, g, b, out) -> {
+      float intensity = (r + g + b) / 3;
+      out[0] = intensity;
+      out[1] = intensity;
+      out[2] = intensity;
     });
   }
 }
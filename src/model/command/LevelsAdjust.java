@@ -37,10 +37,16 @@ class LevelsAdjust extends SimpleImageProcessor {
     imageName = parseString(4);
     height = currentImage.getHeight();
     width = currentImage.getWidth();
-    setTransformer((r, g, b) -> new int[]{
-        clamp(levelsAdjust(r)),
-        clamp(levelsAdjust(g)),
-        clamp(levelsAdjust(b)),});
+    setTransformer((r, g, b, out) -> {
+      out[0] = clamp(levelsAdjust(r));
+      out[1] = clamp(levelsAdjust(g));
+      out[2] = clamp(levelsAdjust(b));
+    });
+    setFloatTransformer((r, g, b, out) -> {
+      out[0] = (float) levelsCurve(r);
+      out[1] = (float) levelsCurve(g);
+      out[2] = (float) levelsCurve(b);
+    });
   }
 
 
@@ -54,6 +60,17 @@ class LevelsAdjust extends SimpleImageProcessor {
 
   // levels adjust function
   private int levelsAdjust(int pValue) {
+    return (int) levelsCurve(pValue);
+  }
+
+  /**
+   * Applies the quadratic levels adjustment function to a pixel value without rounding it.
+   *
+   * @param pValue The input pixel value
+   * @return The adjusted pixel value
+   */
+
+  private double levelsCurve(double pValue) {
     double aA = b * b * (m - w) - b * (m * m - w * w) + w * m * m - m * w * w;
     double pA = -b * (128 - 255) + 128 * w - 255 * m;
     double qA = b * b * (128 - 255) + 255 * m * m - 128 * w * w;
@@ -61,6 +78,6 @@ class LevelsAdjust extends SimpleImageProcessor {
     double p = pA / aA;
     double q = qA / aA;
     double r = rA / aA;
-    return (int) (p * pValue * pValue + q * pValue + r);
+    return p * pValue * pValue + q * pValue + r;
   }
 }
\ No newline at end of file
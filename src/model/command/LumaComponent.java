@@ -24,12 +24,17 @@ class LumaComponent extends Abstract2ArgSimpleImageProcessor {
    */
 
   public LumaComponent(ArgumentWrapper rawArguments, Cache cache) {
-    super(rawArguments, cache, (r, g, b) -> {
+    super(rawArguments, cache, (r, g, b, out) -> {
       int luma = clamp((int) Math.round(RED_WEIGHT * r + GREEN_WEIGHT * g + BLUE_WEIGHT * b));
-      return new int[]{
-          luma,
-          luma,
-          luma};
+      out[0] = luma;
+      out[1] = luma;
+      out[2] = luma;
+    });
+    setFloatTransformer((r, g, b, out) -> {
+      float luma = (float) (RED_WEIGHT * r + GREEN_WEIGHT * g + BLUE_WEIGHT * b);
+      out[0] = luma;
+      out[1] = luma;
+      out[2] = luma;
     });
   }
 }
@@ -2,6 +2,7 @@ package model.command;
 
 import model.Cache;
 import model.Image;
+import model.ImageBuilder;
 import utils.arguments.ArgumentWrapper;
 import utils.arguments.OptionalArgumentKeyword;
 
@@ -35,33 +36,30 @@ public class PartialProcessor extends AbstractCommand {
   }
 
   /**
-   * the execute method of the class.
+   * the execute method of the class. The result starts as the current image's planes and only the
+   * planes that the mask actually changes are copied.
    */
   @Override
   public void execute() {
-    int[][][] imageArray = new int[maskImage.getHeight()]
-        [maskImage.getWidth()]
-        [maskImage.getNoOfChannels()];
-    for (int i = 0; i < maskImage.getHeight(); i++) {
-      for (int j = 0; j < maskImage.getWidth(); j++) {
-        if (maskImage.getRedChannelData()[i][j] == 0 && maskImage.getGreenChannelData()[i][j] == 0
-            && maskImage.getBlueChannelData()[i][j] == 0) {
-          imageArray[i][j][0] = filteredImage.getRedChannelData()[i][j];
-          imageArray[i][j][1] = filteredImage.getGreenChannelData()[i][j];
-          imageArray[i][j][2] = filteredImage.getBlueChannelData()[i][j];
-        }
-        else {
-          imageArray[i][j][0] = currentImage.getRedChannelData()[i][j];
-          imageArray[i][j][1] = currentImage.getGreenChannelData()[i][j];
-          imageArray[i][j][2] = currentImage.getBlueChannelData()[i][j];
+    int height = maskImage.getHeight();
+    int width = maskImage.getWidth();
+    ImageBuilder builder = new ImageBuilder(currentImage, 3);
+
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        if (maskImage.getRed(i, j) == 0 && maskImage.getGreen(i, j) == 0
+            && maskImage.getBlue(i, j) == 0) {
+          for (int channel = 0; channel < builder.getNoOfChannels(); channel++) {
+            float value = filteredImage.getFloat(channel, i, j);
+            if (builder.getFloat(channel, i, j) != value) {
+              builder.setFloat(channel, i, j, value);
+            }
+          }
         }
       }
-
     }
-    Image processedImage = new Image(imageArray);
-    cache.set(imageName, processedImage);
 
+    Image processedImage = builder.build();
+    cache.set(imageName, processedImage);
   }
-
-
 }
@@ -6,41 +6,39 @@ package model.command;
  * such as color adjustments, filtering, or component extraction.
  *
  * <p>The interface provides a single method {@code transformPixel} that takes
- * the RGB values of a pixel and returns the transformed values. All color values are represented as
- * integers in the range [0, 255].
+ * the RGB values of a pixel and writes the transformed values into an output array owned by the
+ * caller. The caller reuses the same array for every pixel, so transforming an image allocates
+ * nothing per pixel. All color values are represented as integers in the range [0, 255].
  *
  * <p>Example usage for increasing brightness:
  * <pre>
- * PixelTransformer brighten = new PixelTransformer() {
- *     {@literal @}Override
- *     public int[] transformPixel(int r, int g, int b) {
- *         int increment = 50;
- *         return new int[]{
- *             Math.min(255, r + increment),
- *             Math.min(255, g + increment),
- *             Math.min(255, b + increment)
- *         };
- *     }
+ * PixelTransformer brighten = (r, g, b, out) -&gt; {
+ *     int increment = 50;
+ *     out[0] = Math.min(255, r + increment);
+ *     out[1] = Math.min(255, g + increment);
+ *     out[2] = Math.min(255, b + increment);
  * };
  * </pre>
  *
  * @see ImageProcessor
+ * @see FloatPixelTransformer
  */
 interface PixelTransformer {
 
   /**
    * Transforms a single pixel's RGB values according to a specific image processing operation.
    *
-   * <p>This method takes the original RGB values of a pixel and returns
-   * an array containing the transformed RGB values. The implementation should ensure that the
-   * returned values are within the valid range of [0, 255].
+   * <p>This method takes the original RGB values of a pixel and writes
+   * the transformed RGB values into {@code out}. The implementation should ensure that the written
+   * values are within the valid range of [0, 255], and must not keep a reference to {@code out}.
+   * Large images are transformed by several threads at once, each with its own {@code out}, so
+   * the implementation must not change any state.
    *
-   * @param r the red component value of the pixel (0-255)
-   * @param g the green component value of the pixel (0-255)
-   * @param b the blue component value of the pixel (0-255)
-   * @return an integer array of length 3 containing the transformed [R, G, B] values, each in the
-   *     range [0, 255]
-   * @throws IllegalArgumentException if the input values are outside the valid range of [0, 255]
+   * @param r   the red component value of the pixel (0-255)
+   * @param g   the green component value of the pixel (0-255)
+   * @param b   the blue component value of the pixel (0-255)
+   * @param out an integer array of at least length 3 that receives the transformed [R, G, B]
+   *            values, each in the range [0, 255]
    */
-  int[] transformPixel(int r, int g, int b);
+  void transformPixel(int r, int g, int b, int[] out);
 }
@@ -0,0 +1,33 @@
+package model.command;
+
+import model.Cache;
+import utils.arguments.ArgumentWrapper;
+
+/**
+ * Forgets the remembered results of earlier commands, in memory and in the result store on disk,
+ * so the following commands are computed again.
+ */
+class Purge extends AbstractCommand {
+
+  /**
+   * Constructs a new Purge command.
+   *
+   * @param rawArguments The command arguments, which must be empty
+   * @param cache        The cache storing the images
+   * @throws IllegalArgumentException if any argument is given
+   */
+  public Purge(ArgumentWrapper rawArguments, Cache cache) {
+    super(rawArguments, cache);
+    if (numberOfArgs() != 0) {
+      throw new IllegalArgumentException("Expected no arguments.");
+    }
+  }
+
+  /**
+   * Purges the remembered results.
+   */
+  @Override
+  public void execute() {
+    cache.getMemo().purge();
+  }
+}
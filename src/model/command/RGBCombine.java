@@ -3,6 +3,7 @@ package model.command;
 
 import model.Cache;
 import model.Image;
+import model.ImageBuilder;
 import utils.arguments.ArgumentWrapper;
 
 /**
@@ -45,25 +46,18 @@ class RGBCombine extends AbstractCommand {
 
   /**
    * Executes the RGB combination operation by combining the individual channel images into a single
-   * RGB image.
+   * RGB image. The channel planes of the input images are shared, not copied.
    */
 
   public void execute() {
-
-    int height = redImage.getHeight();
-    int width = redImage.getWidth();
-
-    int[][][] imageArray = new int[height][width][3];
-
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        imageArray[i][j][0] = redImage.getRedChannelData()[i][j];
-        imageArray[i][j][1] = greenImage.getGreenChannelData()[i][j];
-        imageArray[i][j][2] = blueImage.getBlueChannelData()[i][j];
-      }
-    }
-
-    Image rgbCombine = new Image(imageArray);
+    ImageBuilder builder = new ImageBuilder(redImage.getHeight(),
+                                            redImage.getWidth(),
+                                            3,
+                                            redImage.getStorage());
+    builder.setPlane(Image.RED, redImage.getPlane(Image.RED));
+    builder.setPlane(Image.GREEN, greenImage.getPlane(Image.GREEN));
+    builder.setPlane(Image.BLUE, blueImage.getPlane(Image.BLUE));
+    Image rgbCombine = builder.build();
     cache.set(imageName, rgbCombine);
   }
 
@@ -32,17 +32,13 @@ class RedComponent extends AbstractColorComponent {
   }
 
   /**
-   * Extracts the red channel value for a specific pixel.
+   * Keeps the red channel; the other color channels are set to zero.
    *
-   * @param x The x-coordinate of the pixel
-   * @param y The y-coordinate of the pixel
-   * @return An array containing [red, 0, 0] values
+   * @return {@link Image#RED}
    */
   @Override
-  protected int[] getPixel(int x, int y) {
-    int[] pixel = new int[3];
-    pixel[0] = currentImage.getRedChannelData()[x][y];
-    return pixel;
+  protected int getChannel() {
+    return Image.RED;
   }
 
 }
@@ -2,17 +2,25 @@ package model.command;
 
 import model.Cache;
 import model.Image;
+import model.ImageBuilder;
+import model.RowBands;
+import model.Storage;
+import model.Tile;
 import utils.arguments.ArgumentWrapper;
 
 /**
  * A simple image processor that works with Image objects and works with the PixelTransformer
  * pattern for image processing operations. This class extends ImageProcessor to provide a
  * streamlined framework for pixel-by-pixel transformations.
+ * <br>
+ * A command can also set a {@link FloatPixelTransformer}, which is used instead when the source
+ * image is kept in {@link Storage#FLOAT}, so the result is not quantized to 8 bits.
  */
 
 abstract class SimpleImageProcessor extends ImageProcessor {
 
   private PixelTransformer transformer;
+  private FloatPixelTransformer floatTransformer;
 
   /**
    * Constructs a new SimpleImageProcessor with the specified arguments and transformer.
@@ -51,7 +59,43 @@ abstract class SimpleImageProcessor extends ImageProcessor {
   }
 
   /**
-   * Processes the current image using the set transformer.
+   * Gets the PixelTransformer used for image processing, e.g. to fuse it with the transformers of
+   * other commands, see {@link FusedProcessor}.
+   *
+   * @return the transformer, or null if none is set
+   */
+
+  PixelTransformer getTransformer() {
+    return transformer;
+  }
+
+  /**
+   * Sets the transformer to be used instead of the PixelTransformer when the source image is kept
+   * in {@link Storage#FLOAT}.
+   *
+   * @param floatTransformer The FloatPixelTransformer to use
+   */
+
+  protected void setFloatTransformer(FloatPixelTransformer floatTransformer) {
+    this.floatTransformer = floatTransformer;
+  }
+
+  /**
+   * Gets the transformer used when the source image is kept in {@link Storage#FLOAT}.
+   *
+   * @return the transformer, or null if the command only transforms 8-bit values
+   */
+
+  FloatPixelTransformer getFloatTransformer() {
+    return floatTransformer;
+  }
+
+  /**
+   * Processes the current image using the set transformer. The rows are split into bands that run
+   * in parallel on large images, see {@link RowBands}, and each band is walked in strips of
+   * {@link Tile#SIZE} columns, up to the working width. Every pixel is transformed on its own, so
+   * the result does not depend on how the rows are split. Float images are transformed with full
+   * precision if the command sets a float transformer.
    *
    * @throws IllegalStateException if height or width are not set, or if no transformer is set
    */
@@ -65,20 +109,63 @@ abstract class SimpleImageProcessor extends ImageProcessor {
       throw new IllegalStateException("Internal error: No transformer set");
     }
 
-    int[][] redChannel = currentImage.getRedChannelData();
-    int[][] greenChannel = currentImage.getGreenChannelData();
-    int[][] blueChannel = currentImage.getBlueChannelData();
-
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < workingWidth; j++) {
-        int[]
-            transformedPixel =
-            transformer.transformPixel(redChannel[i][j], greenChannel[i][j], blueChannel[i][j]);
-        imageArray[i][j] = transformedPixel;
-      }
+    ImageBuilder builder = createBuilder();
+    if (workingWidth > 0) {
+      builder.prepare();
+    }
+    if (floatTransformer != null && currentImage.getStorage() == Storage.FLOAT) {
+      processFloatImage(builder);
+      return;
     }
+    RowBands.forEach(height, workingWidth, (startRow, endRow) -> {
+      // Reused for every pixel of the band, so the loop allocates nothing.
+      int[] transformedPixel = new int[3];
+      for (int col = 0; col < workingWidth; col += Tile.SIZE) {
+        int endCol = Math.min(workingWidth, col + Tile.SIZE);
+        for (int i = startRow; i < endRow; i++) {
+          for (int j = col; j < endCol; j++) {
+            transformer.transformPixel(currentImage.getValue(Image.RED, i, j),
+                                       currentImage.getValue(Image.GREEN, i, j),
+                                       currentImage.getValue(Image.BLUE, i, j),
+                                       transformedPixel);
+            builder.set(Image.RED, i, j, transformedPixel[0]);
+            builder.set(Image.GREEN, i, j, transformedPixel[1]);
+            builder.set(Image.BLUE, i, j, transformedPixel[2]);
+          }
+        }
+      }
+    });
 
-    Image processedImage = new Image(imageArray);
+    Image processedImage = builder.build();
     cache.set(imageName, processedImage);
   }
+
+  /**
+   * Processes the current image with the float transformer, reading and writing the samples with
+   * full precision, in the same bands and strips as {@link #processImage()}.
+   *
+   * @param builder the builder of the result.
+   */
+
+  private void processFloatImage(ImageBuilder builder) {
+    RowBands.forEach(height, workingWidth, (startRow, endRow) -> {
+      float[] transformedPixel = new float[3];
+      for (int col = 0; col < workingWidth; col += Tile.SIZE) {
+        int endCol = Math.min(workingWidth, col + Tile.SIZE);
+        for (int i = startRow; i < endRow; i++) {
+          for (int j = col; j < endCol; j++) {
+            floatTransformer.transformPixel(currentImage.getFloat(Image.RED, i, j),
+                                            currentImage.getFloat(Image.GREEN, i, j),
+                                            currentImage.getFloat(Image.BLUE, i, j),
+                                            transformedPixel);
+            builder.setFloat(Image.RED, i, j, transformedPixel[0]);
+            builder.setFloat(Image.GREEN, i, j, transformedPixel[1]);
+            builder.setFloat(Image.BLUE, i, j, transformedPixel[2]);
+          }
+        }
+      }
+    });
+
+    cache.set(imageName, builder.build());
+  }
 }
@@ -0,0 +1,36 @@
+package model.command;
+
+import model.Cache;
+import utils.arguments.ArgumentWrapper;
+
+/**
+ * Unpins an image or histogram in the cache, so it can be evicted again to stay within the
+ * memory budget of the cache.
+ */
+class Unpin extends AbstractCommand {
+
+  private final String name;
+
+  /**
+   * Constructs a new Unpin command.
+   *
+   * @param rawArguments The command arguments containing the name of the entry
+   * @param cache        The cache storing the images
+   * @throws IllegalArgumentException if the number of arguments is not exactly 1
+   */
+  public Unpin(ArgumentWrapper rawArguments, Cache cache) {
+    super(rawArguments, cache);
+    if (numberOfArgs() != 1) {
+      throw new IllegalArgumentException("Expected 1 argument.");
+    }
+    name = parseString(0);
+  }
+
+  /**
+   * Unpins the entry.
+   */
+  @Override
+  public void execute() {
+    cache.unpin(name);
+  }
+}
@@ -19,12 +19,17 @@ class ValueComponent extends Abstract2ArgSimpleImageProcessor {
    * @throws IllegalArgumentException if the arguments are invalid or images cannot be found
    */
   public ValueComponent(ArgumentWrapper rawArguments, Cache cache) {
-    super(rawArguments, cache, (r, g, b) -> {
+    super(rawArguments, cache, (r, g, b, out) -> {
       int value = Math.max(Math.max(r, g), b);
-      return new int[]{
-          value,
-          value,
-          value};
+      out[0] = value;
+      out[1] = value;
+      out[2] = value;
+    });
+    setFloatTransformer((r, g, b, out) -> {
+      float value = Math.max(Math.max(r, g), b);
+      out[0] = value;
+      out[1] = value;
+      out[2] = value;
     });
   }
 
@@ -1,9 +1,11 @@
 package utils;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import model.ImageView;
 
 /**
- * Class to create a buffered Image from a given 3D image array.
+ * Class to create a buffered Image from a given 3D image array or image view.
  */
 public class BufferedImageGenerator {
 
@@ -19,25 +21,42 @@ public class BufferedImageGenerator {
    * @return a {@code BufferedImage} representing the image
    */
   public static BufferedImage createBufferedImage(int[][][] pixelData) {
-    int height = pixelData.length;
-    int width = pixelData[0].length;
-    int num_channels = pixelData[0][0].length;
+    return createBufferedImage(ImageView.of(pixelData));
+  }
+
+  /**
+   * Converts the pixels of an {@code ImageView} to a {@code BufferedImage}.
+   *
+   * <p>
+   * The samples are streamed from the view straight into the raster of the buffered image, so no
+   * intermediate array is allocated. A 4 channel view keeps its transparency.
+   * </p>
+   *
+   * @param view the image to convert
+   * @return a {@code BufferedImage} representing the image
+   */
+  public static BufferedImage createBufferedImage(ImageView view) {
+    int height = view.getHeight();
+    int width = view.getWidth();
+    int numChannels = view.getNoOfChannels();
 
     // Determine the appropriate BufferedImage type based on the number of channels
-    var type = (num_channels == 3) ? BufferedImage.TYPE_3BYTE_BGR : BufferedImage.TYPE_4BYTE_ABGR;
+    boolean hasAlpha = numChannels == 4;
+    var type = (hasAlpha) ? BufferedImage.TYPE_4BYTE_ABGR : BufferedImage.TYPE_3BYTE_BGR;
 
     BufferedImage image = new BufferedImage(width, height, type);
+    byte[] raster = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
 
-    // Iterate over each pixel and set the RGB value in the BufferedImage
+    // Samples are interleaved as (A)BGR in the raster
+    int k = 0;
     for (int y = 0; y < height; y++) {
       for (int x = 0; x < width; x++) {
-        int r = pixelData[y][x][0];  // Red value
-        int g = pixelData[y][x][1];  // Green value
-        int b = pixelData[y][x][2];  // Blue value
-
-        // Combine RGB values into a single integer and set it to the BufferedImage
-        int rgb = (r << 16) | (g << 8) | b;  // Convert to RGB integer
-        image.setRGB(x, y, rgb);
+        if (hasAlpha) {
+          raster[k++] = (byte) view.getValue(3, y, x);
+        }
+        raster[k++] = (byte) view.getValue(2, y, x);  // Blue value
+        raster[k++] = (byte) view.getValue(1, y, x);  // Green value
+        raster[k++] = (byte) view.getValue(0, y, x);  // Red value
       }
     }
 
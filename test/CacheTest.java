@@ -0,0 +1,605 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import model.Cache;
+import model.CacheStats;
+import model.Histogram;
+import model.Image;
+import model.ImageBuilder;
+import model.Model;
+import model.Recipe;
+import model.ResultStore;
+import model.Storage;
+import model.command.CommandFactory;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import utils.arguments.ArgumentWrapper;
+import utils.arguments.IntArgument;
+import utils.arguments.StringArgument;
+
+/**
+ * Tests for the memory accounting, eviction, thread-safety, deferred entries, compression and
+ * remembered command results of the cache.
+ */
+public class CacheTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * creates a 10x10 RGB image of 300 bytes where every channel has its own, non-uniform plane.
+   *
+   * @param seed to make the planes of different images differ.
+   * @return the image.
+   */
+  private static Image image(int seed) {
+    int[][][] pixels = new int[10][10][3];
+    for (int i = 0; i < 10; i++) {
+      for (int j = 0; j < 10; j++) {
+        pixels[i][j] = new int[]{
+            (seed + i + j) % 256, (seed + 2 * i + j) % 256, (seed + i * j) % 256};
+      }
+    }
+    return new Image(pixels);
+  }
+
+  @Test
+  public void sizeCountsSharedPlanesOnce() {
+    Cache cache = new Cache();
+    Image image = image(0);
+    cache.set("a", image);
+    assertEquals(300, cache.getSize());
+    // shares the red plane of a.
+    cache.set("b", new Image(10, 10, image.getPlane(Image.RED), image(1).getPlane(Image.GREEN),
+                             image(1).getPlane(Image.BLUE)));
+    assertEquals(500, cache.getSize());
+    // the red plane of the old a stays counted for b.
+    cache.set("a", image(2));
+    assertEquals(600, cache.getSize());
+    cache.set("h", new Histogram(image));
+    assertEquals(600 + 3 * 256 * 4, cache.getSize());
+  }
+
+  @Test
+  public void builtImagesShareEqualPlanes() {
+    for (Storage storage : new Storage[]{Storage.HEAP, Storage.TILED}) {
+      ImageBuilder empty = new ImageBuilder(0, 5, 3, storage);
+      empty.prepare();
+      assertEquals(0, empty.build().getHeight());
+      empty = new ImageBuilder(5, 0, 1, storage);
+      empty.prepare();
+      assertEquals(0, new Image(5, 0, empty.build().getPlane(0)).getWidth());
+    }
+
+    Image image = image(0);
+    ImageBuilder builder = new ImageBuilder(image, 3);
+    for (int i = 0; i < 10; i++) {
+      for (int j = 0; j < 10; j++) {
+        builder.set(Image.BLUE, i, j, image.getValue(Image.RED, i, j));
+      }
+    }
+    Image built = builder.build();
+    assertSame(image.getPlane(Image.GREEN), built.getPlane(Image.GREEN));
+    assertSame(built.getPlane(Image.RED), built.getPlane(Image.BLUE));
+    Cache cache = new Cache();
+    cache.set("built", built);
+    assertEquals(200, cache.getSize());
+  }
+
+  @Test
+  public void leastRecentlyUsedIsSpilledAndReadBack() {
+    Cache cache = new Cache(700);
+    cache.set("a", image(0));
+    cache.set("b", image(1));
+    cache.get("a");
+    cache.set("c", image(2));
+    assertEquals(600, cache.getSize());
+    assertTrue(cache.isSpilled("b"));
+    assertFalse(cache.isSpilled("a") || cache.isSpilled("c"));
+
+    // b is read back and the least recently used a is spilled in turn.
+    assertArrayEquals(image(1).getImageArray(), cache.get("b").getImageArray());
+    assertTrue(cache.isSpilled("a"));
+    assertEquals(600, cache.getSize());
+    assertArrayEquals(image(0).getImageArray(), cache.get("a").getImageArray());
+  }
+
+  @Test
+  public void pinnedIsNotEvicted() {
+    Cache cache = new Cache(700);
+    Image a = image(0);
+    cache.set("a", a);
+    cache.pin("a");
+    cache.set("b", image(1));
+    cache.set("c", image(2));
+    cache.set("d", image(3));
+    assertSame(a, cache.get("a"));
+    assertFalse(cache.isSpilled("a"));
+    assertEquals(600, cache.getSize());
+    cache.unpin("a");
+    cache.set("e", image(4));
+    assertEquals(600, cache.getSize());
+  }
+
+  @Test(expected = NoSuchElementException.class)
+  public void pinMissing() {
+    new Cache().pin("missing");
+  }
+
+  /**
+   * runs the same chain of commands on its own aliases of a shared model.
+   *
+   * @param model the model.
+   * @param id    the id of the thread, used to name the aliases.
+   * @param round the round, used to vary the brightness.
+   * @return the final image.
+   */
+  private static int[][][] chain(Model model, int id, int round) {
+    String source = "source";
+    String bright = "bright" + id;
+    String blurred = "blurred" + id;
+    String flipped = "flipped" + id;
+    model.execute("brighten", new ArgumentWrapper(new IntArgument(round % 50),
+                                                  new StringArgument(source),
+                                                  new StringArgument(bright)));
+    model.execute("blur", new ArgumentWrapper(new StringArgument(bright),
+                                              new StringArgument(blurred)));
+    model.execute("horizontal-flip", new ArgumentWrapper(new StringArgument(blurred),
+                                                         new StringArgument(flipped)));
+    model.execute("histogram", new ArgumentWrapper(new StringArgument(flipped),
+                                                   new StringArgument("histogram" + id)));
+    model.getHistogram("histogram" + id);
+    return model.getImage(flipped);
+  }
+
+  @Test
+  public void concurrentCommandsOnOneModel() throws Exception {
+    final int threads = 8;
+    final int rounds = 25;
+    int[][][] pixels = image(7).getImageArray();
+
+    // single threaded reference for every round.
+    Model reference = new Model();
+    reference.setImage(pixels, "source");
+    List<int[][][]> expected = new ArrayList<>();
+    for (int round = 0; round < rounds; round++) {
+      expected.add(chain(reference, 0, round));
+    }
+
+    // a budget of a few images, so entries are spilled and read back concurrently.
+    Model model = new Model(2000);
+    model.setImage(pixels, "source");
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<Future<?>> results = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      final int id = t;
+      results.add(executor.submit(() -> {
+        for (int round = 0; round < rounds; round++) {
+          assertArrayEquals(expected.get(round), chain(model, id, round));
+        }
+        return null;
+      }));
+    }
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+    for (Future<?> result : results) {
+      // rethrows any failure of the thread.
+      result.get();
+    }
+  }
+
+  /**
+   * checks that an image is one of the given versions.
+   *
+   * @param versions the versions.
+   * @param image    the image read.
+   */
+  private static void assertOneOf(List<int[][][]> versions, int[][][] image) {
+    for (int[][][] version : versions) {
+      if (Arrays.deepEquals(version, image)) {
+        return;
+      }
+    }
+    throw new AssertionError("Read an image that is not one complete version.");
+  }
+
+  @Test
+  public void sharedAliasIsOverwrittenAndReadConcurrently() throws Exception {
+    final int writers = 4;
+    final int readers = 4;
+    final int rounds = 40;
+    int[][][] pixels = image(5).getImageArray();
+
+    // every version the shared alias can hold, and its flip.
+    Model reference = new Model();
+    reference.setImage(pixels, "source");
+    List<int[][][]> versions = new ArrayList<>();
+    List<int[][][]> flips = new ArrayList<>();
+    for (int version = 0; version < writers; version++) {
+      reference.execute("brighten", new ArgumentWrapper(new IntArgument(version * 20),
+                                                        new StringArgument("source"),
+                                                        new StringArgument("shared")));
+      reference.execute("horizontal-flip", new ArgumentWrapper(new StringArgument("shared"),
+                                                               new StringArgument("flipped")));
+      versions.add(reference.getImage("shared"));
+      flips.add(reference.getImage("flipped"));
+    }
+
+    // a budget of a few images, so the alias is also spilled and read back while it is written.
+    Model model = new Model(2000);
+    model.setImage(pixels, "source");
+    model.setImage(versions.get(0), "shared");
+    ExecutorService executor = Executors.newFixedThreadPool(writers + readers);
+    List<Future<?>> results = new ArrayList<>();
+    for (int t = 0; t < writers; t++) {
+      final int version = t;
+      results.add(executor.submit(() -> {
+        for (int round = 0; round < rounds; round++) {
+          model.execute("brighten", new ArgumentWrapper(new IntArgument(version * 20),
+                                                        new StringArgument("source"),
+                                                        new StringArgument("shared")));
+        }
+        return null;
+      }));
+    }
+    for (int t = 0; t < readers; t++) {
+      final String flipped = "flipped" + t;
+      results.add(executor.submit(() -> {
+        for (int round = 0; round < rounds; round++) {
+          assertOneOf(versions, model.getImage("shared"));
+          model.execute("horizontal-flip", new ArgumentWrapper(new StringArgument("shared"),
+                                                               new StringArgument(flipped)));
+          assertOneOf(flips, model.getImage(flipped));
+        }
+        return null;
+      }));
+    }
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+    for (Future<?> result : results) {
+      // rethrows any failure of the thread.
+      result.get();
+    }
+    assertOneOf(versions, model.getImage("shared"));
+  }
+
+  @Test
+  public void lazyResultsAreComputedOnRead() {
+    int[][][] pixels = image(3).getImageArray();
+    Model eager = new Model();
+    Model lazy = new Model();
+    lazy.setLazy(true);
+    for (Model model : new Model[]{eager, lazy}) {
+      model.setImage(pixels, "source");
+      model.execute("brighten", new ArgumentWrapper(new IntArgument(20),
+                                                    new StringArgument("source"),
+                                                    new StringArgument("bright")));
+      model.execute("rgb-split", new ArgumentWrapper(new StringArgument("bright"),
+                                                     new StringArgument("red"),
+                                                     new StringArgument("green"),
+                                                     new StringArgument("blue")));
+      // the recipes captured the source before it is overwritten.
+      model.setImage(image(4).getImageArray(), "source");
+    }
+    assertArrayEquals(eager.getImage("green"), lazy.getImage("green"));
+    assertArrayEquals(eager.getImage("red"), lazy.getImage("red"));
+    assertArrayEquals(eager.getImage("bright"), lazy.getImage("bright"));
+  }
+
+  @Test
+  public void lazyResultOverwrittenBeforeReadIsNeverComputed() {
+    Model model = new Model();
+    model.setLazy(true);
+    model.setImage(image(5).getImageArray(), "source");
+    // an invalid command, that would fail if it were executed.
+    model.execute("levels-adjust", new ArgumentWrapper(new IntArgument(200),
+                                                       new IntArgument(100),
+                                                       new IntArgument(50),
+                                                       new StringArgument("source"),
+                                                       new StringArgument("levels")));
+    model.execute("sepia", new ArgumentWrapper(new StringArgument("source"),
+                                               new StringArgument("levels")));
+    assertEquals(3, model.getImage("levels")[0][0].length);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void lazyErrorIsReportedOnRead() {
+    Model model = new Model();
+    model.setLazy(true);
+    model.setImage(image(5).getImageArray(), "source");
+    model.execute("levels-adjust", new ArgumentWrapper(new IntArgument(200),
+                                                       new IntArgument(100),
+                                                       new IntArgument(50),
+                                                       new StringArgument("source"),
+                                                       new StringArgument("levels")));
+    model.getImage("levels");
+  }
+
+  @Test
+  public void lazyGraphIsFusedAndComputedConcurrently() {
+    int[][][] pixels = image(7).getImageArray();
+    Model eager = new Model();
+    Model lazy = new Model();
+    lazy.setLazy(true);
+    for (Model model : new Model[]{eager, lazy}) {
+      model.setImage(pixels, "source");
+      model.execute("rgb-split", new ArgumentWrapper(new StringArgument("source"),
+                                                     new StringArgument("r"),
+                                                     new StringArgument("g"),
+                                                     new StringArgument("b")));
+      // a chain of point operations on each channel, then combined.
+      for (String channel : new String[]{"r", "g", "b"}) {
+        model.execute("brighten", new ArgumentWrapper(new IntArgument(30),
+                                                      new StringArgument(channel),
+                                                      new StringArgument(channel + "1")));
+        model.execute("sepia", new ArgumentWrapper(new StringArgument(channel + "1"),
+                                                   new StringArgument(channel + "2")));
+        model.execute("levels-adjust", new ArgumentWrapper(new IntArgument(20),
+                                                           new IntArgument(128),
+                                                           new IntArgument(230),
+                                                           new StringArgument(channel + "2"),
+                                                           new StringArgument(channel + "3")));
+      }
+      model.execute("rgb-combine", new ArgumentWrapper(new StringArgument("combined"),
+                                                       new StringArgument("r3"),
+                                                       new StringArgument("g3"),
+                                                       new StringArgument("b3")));
+    }
+    assertArrayEquals(eager.getImage("combined"), lazy.getImage("combined"));
+
+    // only rgb-split and rgb-combine ran on their own, the results in between were fused away
+    // and are still deferred.
+    assertTrue(lazy.getCacheStats().toString().contains("Remembered results: 0 hits, 2 misses"));
+    for (CacheStats.Entry entry : lazy.getCacheStats().getEntries()) {
+      if (entry.getName().endsWith("1") || entry.getName().endsWith("2")) {
+        assertEquals("deferred", entry.getState());
+      }
+    }
+    assertArrayEquals(eager.getImage("g1"), lazy.getImage("g1"));
+  }
+
+  @Test
+  public void repeatedCommandIsRemembered() {
+    Model model = new Model();
+    model.setImage(image(6).getImageArray(), "a");
+    ArgumentWrapper blur = new ArgumentWrapper(new StringArgument("a"), new StringArgument("b"));
+    model.execute("blur", blur);
+    int[][][] blurred = model.getImage("b");
+
+    // the same pixels loaded again under another name, blurred to another name.
+    model.setImage(image(6).getImageArray(), "c");
+    model.execute("blur", new ArgumentWrapper(new StringArgument("c"), new StringArgument("d")));
+    assertSame(model.getImageView("b"), model.getImageView("d"));
+    // a different amount is a different command.
+    model.execute("brighten", new ArgumentWrapper(new IntArgument(10), new StringArgument("b"),
+                                                  new StringArgument("e")));
+    model.execute("brighten", new ArgumentWrapper(new IntArgument(20), new StringArgument("b"),
+                                                  new StringArgument("f")));
+    assertFalse(model.getImageView("e") == model.getImageView("f"));
+    assertArrayEquals(blurred, model.getImage("d"));
+  }
+
+  @Test
+  public void contentKeysIdentifyPixels() {
+    String key = image(0).getContentKey();
+    assertEquals(64, key.length());
+    assertEquals(key, image(0).getContentKey());
+    assertFalse(key.equals(image(1).getContentKey()));
+    assertFalse(key.equals(image(0).toStorage(Storage.FLOAT).getContentKey()));
+    int[][][] pixels = image(0).getImageArray();
+    pixels[9][9][2]++;
+    assertFalse(key.equals(new Image(pixels).getContentKey()));
+  }
+
+  @Test
+  public void histogramIsComputedOncePerImage() {
+    Image image = image(8);
+    assertSame(image.getHistogram(), image.getHistogram());
+    Histogram histogram = image.getHistogram();
+    // red is (8 + i + j) % 256 for i, j in [0, 10).
+    assertEquals(8, histogram.getMin(Image.RED));
+    assertEquals(26, histogram.getMax(Image.RED));
+    assertEquals(17.0, histogram.getMean(Image.RED), 1e-9);
+
+    Model model = new Model();
+    model.setImage(image.getImageArray(), "a");
+    model.execute("histogram", new ArgumentWrapper(new StringArgument("a"),
+                                                   new StringArgument("h1")));
+    model.execute("histogram", new ArgumentWrapper(new StringArgument("a"),
+                                                   new StringArgument("h2")));
+    assertSame(model.getHistogram("h1"), model.getHistogram("h2"));
+  }
+
+  @Test
+  public void resultsAreStoredAcrossRuns() throws Exception {
+    ResultStore store = new ResultStore(folder.getRoot().toPath(), 1 << 20);
+    ArgumentWrapper blur = new ArgumentWrapper(new StringArgument("a"), new StringArgument("b"));
+
+    Cache first = new Cache();
+    first.getMemo().setStore(store);
+    first.set("a", image(9));
+    CommandFactory.BLUR.executeCommandWith(blur, first);
+    assertEquals(0, first.getMemo().getHits());
+    assertTrue(store.getSize() > 0);
+
+    // a later run on the same pixels loads the result.
+    Cache second = new Cache();
+    second.getMemo().setStore(store);
+    second.set("a", image(9));
+    CommandFactory.BLUR.executeCommandWith(blur, second);
+    assertEquals(1, second.getMemo().getHits());
+    assertArrayEquals(first.get("b").getImageArray(), second.get("b").getImageArray());
+
+    CommandFactory.CACHE_PURGE.executeCommandWith(new ArgumentWrapper(), second);
+    assertEquals(0, store.getSize());
+  }
+
+  @Test
+  public void corruptOrOutdatedResultsAreMisses() throws Exception {
+    Path root = folder.getRoot().toPath();
+    ResultStore store = new ResultStore(root, 1 << 20);
+    Cache cache = new Cache();
+    cache.getMemo().setStore(store);
+    cache.set("a", image(3));
+    CommandFactory.BLUR.executeCommandWith(
+        new ArgumentWrapper(new StringArgument("a"), new StringArgument("b")), cache);
+    File[] files = root.toFile().listFiles((dir, name) -> name.endsWith(".result"));
+    assertEquals(1, files.length);
+    assertEquals(files[0].length(), store.getSize());
+    byte[] intact = Files.readAllBytes(files[0].toPath());
+    String key;
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(intact))) {
+      in.skipBytes(3 * Integer.BYTES);
+      key = in.readUTF();
+    }
+    assertEquals(1, store.load(key).size());
+
+    // header, key, result count and kind, then the height, width, channels and storage.
+    int storage = 3 * Integer.BYTES + 2 + key.length() + Integer.BYTES + 1 + 3 * Integer.BYTES;
+    for (int corruption = 0; corruption < 4; corruption++) {
+      byte[] bytes = intact.clone();
+      if (corruption == 0) {
+        bytes = Arrays.copyOf(bytes, bytes.length / 2);
+      }
+      else if (corruption == 1) {
+        // written by another version.
+        bytes[7]++;
+      }
+      else if (corruption == 2) {
+        bytes[storage] = 99;
+      }
+      else {
+        // a negative height.
+        bytes[storage - 3 * Integer.BYTES] = (byte) 0x80;
+      }
+      Files.write(files[0].toPath(), bytes);
+      assertNull(store.load(key));
+    }
+  }
+
+  @Test
+  public void resultStoreKeepsWithinItsLimit() {
+    // room for about one blurred 10x10 image.
+    ResultStore store = new ResultStore(folder.getRoot().toPath(), 500);
+    Cache cache = new Cache();
+    cache.getMemo().setStore(store);
+    for (int i = 0; i < 5; i++) {
+      cache.set("a", image(i));
+      CommandFactory.BLUR.executeCommandWith(
+          new ArgumentWrapper(new StringArgument("a"), new StringArgument("b")), cache);
+      assertTrue(store.getSize() <= 500);
+    }
+    assertTrue(store.getSize() > 0);
+  }
+
+  @Test
+  public void statsAndDrop() {
+    Cache cache = new Cache(700);
+    cache.set("a", image(0));
+    cache.set("b", image(1));
+    cache.set("c", image(2));
+    cache.get("c");
+    CacheStats stats = cache.getStats();
+    assertEquals(3, stats.getEntries().size());
+    assertEquals(1, stats.getEvictions());
+    assertEquals(1, stats.getHits());
+    // largest first, the spilled entry holds no memory.
+    assertEquals(300, stats.getEntries().get(0).getSize());
+    assertEquals("spilled", stats.getEntries().get(2).getState());
+    assertTrue(stats.toString().contains("Lookups: 1 hits, 0 misses, 1 evictions"));
+
+    CommandFactory.CACHE_DROP.executeCommandWith(
+        new ArgumentWrapper(new StringArgument("b")), cache);
+    assertEquals(300, cache.getSize());
+    assertEquals(2, cache.getStats().getEntries().size());
+
+    // a dropped result frees its memory, even though the command writing it was remembered.
+    CommandFactory.BLUR.executeCommandWith(
+        new ArgumentWrapper(new StringArgument("c"), new StringArgument("d")), cache);
+    assertEquals(600, cache.getStats().getSize());
+    CommandFactory.CACHE_DROP.executeCommandWith(
+        new ArgumentWrapper(new StringArgument("d")), cache);
+    assertEquals(300, cache.getStats().getSize());
+    assertEquals(0, cache.getMemo().getSize());
+  }
+
+  @Test
+  public void capturedInputsAreCounted() {
+    Cache cache = new Cache();
+    cache.set("a", image(0));
+    cache.set(new Recipe(CommandFactory.BLUR,
+                         new ArgumentWrapper(new StringArgument("a"), new StringArgument("b")),
+                         List.of("a"), List.of("b")));
+    assertEquals(300, cache.getSize());
+    // the recipe still holds the old a.
+    cache.set("a", image(1));
+    assertEquals(600, cache.getSize());
+    assertEquals(300, cache.getStats().getEntries().stream()
+        .filter(entry -> entry.getName().equals("b")).findFirst().get().getSize());
+    // once computed, the recipe and the old a are gone; the result is also remembered.
+    cache.get("b");
+    assertEquals(600, cache.getSize());
+  }
+
+  @Test
+  public void rememberedResultsAreCountedAndForgottenFirst() {
+    Cache cache = new Cache(700);
+    cache.set("a", image(0));
+    CommandFactory.BLUR.executeCommandWith(
+        new ArgumentWrapper(new StringArgument("a"), new StringArgument("b")), cache);
+    assertEquals(600, cache.getSize());
+    // the remembered blur still holds the planes b had, and is over the budget with the new b, so
+    // it is forgotten instead of spilling an entry.
+    cache.set("b", image(1));
+    assertEquals(600, cache.getSize());
+    assertEquals(0, cache.getStats().getEvictions());
+    assertEquals(0, cache.getMemo().getSize());
+  }
+
+  @Test
+  public void idleEntriesAreCompressed() {
+    for (Storage storage : new Storage[]{Storage.HEAP, Storage.FLOAT}) {
+      int[][][] pixels = new int[100][100][3];
+      for (int i = 0; i < 100; i++) {
+        for (int j = 0; j < 100; j++) {
+          pixels[i][j] = new int[]{(i + j) % 256, (2 * i + j) % 256, (i * j / 50) % 256};
+        }
+      }
+      Cache cache = new Cache();
+      cache.setCompressionDelay(0);
+      cache.set("smooth", new Image(pixels, storage));
+      long uncompressed = new Image(pixels, storage).getSizeInBytes();
+      cache.set("other", image(0));
+
+      CacheStats.Entry compressed = cache.getStats().getEntries().stream()
+          .filter(entry -> entry.getName().equals("smooth")).findFirst().get();
+      assertEquals("compressed", compressed.getState());
+      assertTrue(compressed.getSize() < uncompressed / 4);
+      assertArrayEquals(pixels, cache.get("smooth").getImageArray());
+      assertEquals(storage, cache.get("smooth").getStorage());
+    }
+  }
+
+  @Test(expected = NoSuchElementException.class)
+  public void dropMissing() {
+    new Cache().remove("missing");
+  }
+}
@@ -0,0 +1,111 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import model.Image;
+import model.Model;
+import model.Storage;
+import org.junit.Test;
+import utils.arguments.ArgumentWrapper;
+import utils.arguments.IntArgument;
+import utils.arguments.StringArgument;
+
+/**
+ * Tests that a chain of commands on an image kept in {@link Storage#FLOAT} keeps the precision of
+ * its samples between the commands, whether the point operations run one by one or fused.
+ */
+public class FloatStorageTest {
+
+  private static final double[][] SEPIA = {
+      {0.393, 0.769, 0.189}, {0.349, 0.686, 0.168}, {0.272, 0.534, 0.131}};
+
+  /**
+   * creates a model holding a random image.
+   *
+   * @param storage the storage of the image.
+   * @return the model, with the image named "image".
+   */
+  private static Model model(Storage storage) {
+    int[][][] pixels = new int[30][40][3];
+    Random random = new Random(11);
+    for (int[][] row : pixels) {
+      for (int[] pixel : row) {
+        pixel[0] = random.nextInt(256);
+        pixel[1] = random.nextInt(256);
+        pixel[2] = random.nextInt(256);
+      }
+    }
+    Model model = new Model();
+    model.setImage(pixels, "image", storage);
+    model.execute("blur", new ArgumentWrapper(new StringArgument("image"),
+                                              new StringArgument("blurred")));
+    return model;
+  }
+
+  private static ArgumentWrapper brighten() {
+    return new ArgumentWrapper(new IntArgument(10), new StringArgument("blurred"),
+                               new StringArgument("bright"));
+  }
+
+  private static ArgumentWrapper sepia() {
+    return new ArgumentWrapper(new StringArgument("bright"), new StringArgument("sepia"));
+  }
+
+  @Test
+  public void pointOperationsKeepFloatPrecision() {
+    Model model = model(Storage.FLOAT);
+    model.execute("brighten", brighten());
+    model.execute("sepia", sepia());
+    Image blurred = (Image) model.getImageView("blurred");
+    Image result = (Image) model.getImageView("sepia");
+    assertEquals(Storage.FLOAT, result.getStorage());
+
+    boolean fractional = false;
+    boolean overflow = false;
+    for (int i = 0; i < result.getHeight(); i++) {
+      for (int j = 0; j < result.getWidth(); j++) {
+        for (int c = 0; c < 3; c++) {
+          double expected = 0;
+          for (int k = 0; k < 3; k++) {
+            expected += SEPIA[c][k] * (blurred.getFloat(k, i, j) + 10f);
+          }
+          float actual = result.getFloat(c, i, j);
+          assertEquals(expected, actual, 1e-3);
+          fractional |= Math.abs(actual - Math.round(actual)) > 0.01;
+          overflow |= actual > 255;
+        }
+      }
+    }
+    // neither rounded nor clamped between the commands.
+    assertTrue(fractional);
+    assertTrue(overflow);
+    // and only quantized when read as 8 bits.
+    int[][][] pixels = model.getImage("sepia");
+    assertEquals(Math.min(255, Math.round(result.getFloat(0, 0, 0))), pixels[0][0][0]);
+  }
+
+  @Test
+  public void fusedChainMatchesCommandsOneByOne() {
+    for (Storage storage : new Storage[]{Storage.FLOAT, Storage.HEAP}) {
+      Model single = model(storage);
+      single.execute("brighten", brighten());
+      single.execute("sepia", sepia());
+      Model fused = model(storage);
+      fused.executeFused(List.of("brighten", "sepia"), List.of(brighten(), sepia()),
+                         Set.of("sepia"));
+
+      Image expected = (Image) single.getImageView("sepia");
+      Image actual = (Image) fused.getImageView("sepia");
+      assertEquals(storage, actual.getStorage());
+      for (int c = 0; c < 3; c++) {
+        for (int i = 0; i < expected.getHeight(); i++) {
+          for (int j = 0; j < expected.getWidth(); j++) {
+            assertEquals(expected.getFloat(c, i, j), actual.getFloat(c, i, j), 0);
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,74 @@
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.Random;
+import model.Model;
+import model.RowBands;
+import model.Storage;
+import org.junit.After;
+import org.junit.Test;
+import utils.arguments.ArgumentWrapper;
+import utils.arguments.IntArgument;
+import utils.arguments.OptionalArgumentKeyword;
+import utils.arguments.StringArgument;
+
+/**
+ * Tests that commands processing the rows of an image in parallel bands produce the same pixels as
+ * on a single thread.
+ */
+public class RowBandsTest {
+
+  private final int parallelism = RowBands.getParallelism();
+  private final long threshold = RowBands.getThreshold();
+
+  @After
+  public void restore() {
+    RowBands.setParallelism(parallelism);
+    RowBands.setThreshold(threshold);
+  }
+
+  /**
+   * runs a few per-pixel commands, some on part of the image, on a random image.
+   *
+   * @param storage the storage of the image.
+   * @return the results.
+   */
+  private static int[][][][] run(Storage storage) {
+    int[][][] pixels = new int[401][333][3];
+    Random random = new Random(7);
+    for (int[][] row : pixels) {
+      for (int[] pixel : row) {
+        pixel[0] = random.nextInt(256);
+        pixel[1] = random.nextInt(256);
+        pixel[2] = random.nextInt(256);
+      }
+    }
+    Model model = new Model();
+    model.setImage(pixels, "image", storage);
+    model.execute("sepia", new ArgumentWrapper(new StringArgument("image"),
+                                               new StringArgument("sepia")));
+    model.execute("levels-adjust", new ArgumentWrapper(new IntArgument(20), new IntArgument(128),
+                                                       new IntArgument(230),
+                                                       new StringArgument("sepia"),
+                                                       new StringArgument("levels")));
+    ArgumentWrapper brighten = new ArgumentWrapper(new IntArgument(40),
+                                                   new StringArgument("levels"),
+                                                   new StringArgument("bright"));
+    brighten.setArgument(OptionalArgumentKeyword.SPLIT, 37);
+    model.execute("brighten", brighten);
+    model.execute("color-correct", new ArgumentWrapper(new StringArgument("bright"),
+                                                       new StringArgument("corrected")));
+    return new int[][][][]{model.getImage("levels"), model.getImage("bright"),
+        model.getImage("corrected")};
+  }
+
+  @Test
+  public void parallelMatchesSequential() {
+    for (Storage storage : new Storage[]{Storage.HEAP, Storage.TILED, Storage.FLOAT}) {
+      RowBands.setParallelism(1);
+      int[][][][] expected = run(storage);
+      RowBands.setParallelism(4);
+      RowBands.setThreshold(0);
+      assertArrayEquals(expected, run(storage));
+    }
+  }
+}
@@ -3,22 +3,35 @@ package controller;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
 
+import controller.viewhandler.CLIAdapter;
 import controller.viewhandler.ViewAdapter;
+import model.CacheStats;
 import model.Cache;
 import model.IModel;
 import model.Image;
 import model.Model;
+import model.Storage;
 import model.command.CommandFactory;
 import utils.arguments.ArgumentWrapper;
+import utils.arguments.IntArgument;
 import utils.arguments.OptionalArgumentKeyword;
 import utils.arguments.Signature;
 import utils.arguments.StringArgument;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -188,6 +201,40 @@ public class ControllerTest {
     public Map<String, Signature> getCommandSignatures() {
       return CommandFactory.getSignatureMap();
     }
+
+    /**
+     * declines to fuse, so the controller executes the commands one by one.
+     * @param commands     the names of the commands.
+     * @param args         the arguments of each command.
+     * @param materialized the names used later.
+     * @throws IllegalArgumentException always.
+     */
+    @Override
+    public void executeFused(List<String> commands, List<ArgumentWrapper> args,
+                             Set<String> materialized) {
+      log.append("executeFused called with commands: ").append(commands).append("\n");
+      throw new IllegalArgumentException("Mock does not fuse commands.");
+    }
+
+    /**
+     * drops an unpinned entry from the cache of the mock.
+     * @param name the name of the entry.
+     * @return true if the entry was dropped.
+     */
+    @Override
+    public boolean releaseIfUnpinned(String name) {
+      log.append("releaseIfUnpinned called with name: ").append(name).append("\n");
+      return cache.releaseIfUnpinned(name);
+    }
+
+    /**
+     * get the statistics of the cache of the mock.
+     * @return the statistics.
+     */
+    @Override
+    public CacheStats getCacheStats() {
+      return cache.getStats();
+    }
   }
 
   private Controller controller;
@@ -305,6 +352,254 @@ public class ControllerTest {
             commandNames.contains("sharpen"));
   }
 
+  /**
+   * test that a model declining to fuse runs the commands one by one, and reports its cache.
+   */
+  @Test
+  public void testModelDecliningFusionRunsCommandsOneByOne() {
+    mockModel.setImage(new int[][][]{{{1, 2, 3}}}, "x");
+    List<ArgumentWrapper> args = List.of(
+        new ArgumentWrapper(new IntArgument(10), new StringArgument("x"),
+                            new StringArgument("y")));
+    assertFalse(controller.invokeFused(List.of("brighten"), args, Set.of("y")));
+    assertTrue(log.toString().contains("executeFused called with commands: [brighten]"));
+    assertTrue(controller.getCacheStats().contains("Remembered results"));
+  }
+
+  /**
+   * test that images are decoded straight into the storage they are loaded into.
+   */
+  @Test
+  public void testLoadDecodesIntoStorage() {
+    Controller real = new Controller(model, mockView);
+    for (String name : new String[]{"parrot.png", "parrot.jpg", "parrot.ppm"}) {
+      File file = new File("assignment4/res/img/other/" + name);
+      real.loadImage(file, "heap");
+      for (Storage storage : new Storage[]{Storage.OFF_HEAP, Storage.MAPPED}) {
+        real.loadImage(file, "loaded", storage);
+        Image image = (Image) model.getImageView("loaded");
+        assertEquals(storage, image.getStorage());
+        assertEquals(3, image.getNoOfChannels());
+        assertArrayEquals(model.getImage("heap"), model.getImage("loaded"));
+      }
+    }
+  }
+
+  /**
+   * test cache statistics of a real model.
+   */
+  @Test
+  public void testGetCacheStats() {
+    Controller real = new Controller(model, mockView);
+    real.loadImage(testFile, "test-image");
+    real.invokeCommand("blur", new ArgumentWrapper(new StringArgument("test-image"),
+                                                   new StringArgument("blurred-image")));
+    String stats = real.getCacheStats();
+    assertTrue(stats.contains("Entries: 2"));
+    assertTrue(stats.contains("test-image"));
+    assertTrue(stats.contains("blurred-image"));
+  }
+
+  /**
+   * test that a script releases its intermediate aliases after their last read, and keeps the
+   * aliases it writes last.
+   */
+  @Test
+  public void testRunReleasesDeadAliases() throws Exception {
+    File dir = Files.createTempDirectory("script").toFile();
+    File script = new File(dir, "script.txt");
+    File saved = new File(dir, "c.png");
+    Files.write(script.toPath(), List.of(
+        "load " + testFile.getPath() + " d",
+        "brighten 10 d b",
+        "blur b c",
+        "save " + saved.getPath() + " c",
+        "sepia c e",
+        "blur d p"));
+    CLIAdapter cli = new CLIAdapter(
+        new ByteArrayInputStream(("run " + script.getPath() + "\n").getBytes()),
+        new PrintStream(new ByteArrayOutputStream()));
+    Controller real = new Controller(model, cli);
+    real.loadImage(testFile, "p");
+    real.run();
+
+    // the saved alias, the unsaved result and the overwritten alias from before the script are
+    // left.
+    Set<String> names = new HashSet<>();
+    long held = 0;
+    for (CacheStats.Entry entry : model.getCacheStats().getEntries()) {
+      names.add(entry.getName());
+      held += entry.getSize();
+    }
+    assertEquals(Set.of("c", "e", "p"), names);
+    // the results remembered for the released aliases do not keep their memory.
+    assertEquals(held, model.getCacheStats().getSize());
+    assertTrue(saved.exists());
+  }
+
+  /**
+   * test that a script does not release an alias pinned before it ran, even if it overwrites the
+   * alias and then reads it.
+   */
+  @Test
+  public void testRunKeepsPinnedAliases() throws Exception {
+    File dir = Files.createTempDirectory("script").toFile();
+    File script = new File(dir, "script.txt");
+    File saved = new File(dir, "u.png");
+    Files.write(script.toPath(), List.of(
+        "brighten 10 t t",
+        "blur t u",
+        "save " + saved.getPath() + " u"));
+    CLIAdapter cli = new CLIAdapter(
+        new ByteArrayInputStream(("run " + script.getPath() + "\n").getBytes()),
+        new PrintStream(new ByteArrayOutputStream()));
+    Controller real = new Controller(model, cli);
+    real.loadImage(testFile, "t");
+    model.execute("pin", new ArgumentWrapper(new StringArgument("t")));
+    real.run();
+
+    assertTrue(saved.exists());
+    boolean pinned = false;
+    for (CacheStats.Entry entry : model.getCacheStats().getEntries()) {
+      pinned |= entry.getName().equals("t") && entry.getState().contains("pinned");
+    }
+    assertTrue(pinned);
+    assertFalse(model.releaseIfUnpinned("t"));
+    model.execute("unpin", new ArgumentWrapper(new StringArgument("t")));
+    assertTrue(model.releaseIfUnpinned("t"));
+    assertFalse(model.releaseIfUnpinned("t"));
+  }
+
+  /**
+   * test that a chain of point operations in a script runs as one pass, writes only the alias used
+   * later, and gives the same pixels as running the commands one by one.
+   */
+  @Test
+  public void testRunFusesPointOperations() throws Exception {
+    File dir = Files.createTempDirectory("script").toFile();
+    File script = new File(dir, "script.txt");
+    Files.write(script.toPath(), List.of(
+        "load " + testFile.getPath() + " a",
+        "brighten 10 a b",
+        "sepia b c",
+        "levels-adjust 20 128 230 c d",
+        "save " + new File(dir, "d.png").getPath() + " d"));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    CLIAdapter cli = new CLIAdapter(
+        new ByteArrayInputStream(("run " + script.getPath() + "\n").getBytes()),
+        new PrintStream(out));
+    new Controller(model, cli).run();
+
+    Model expected = new Model();
+    new Controller(expected, new CLIAdapter(new ByteArrayInputStream(new byte[0]),
+                                            new PrintStream(new ByteArrayOutputStream())))
+        .loadImage(testFile, "a");
+    expected.execute("brighten", new ArgumentWrapper(new IntArgument(10), new StringArgument("a"),
+                                                     new StringArgument("b")));
+    expected.execute("sepia", new ArgumentWrapper(new StringArgument("b"),
+                                                  new StringArgument("c")));
+    expected.execute("levels-adjust", new ArgumentWrapper(
+        new IntArgument(20), new IntArgument(128), new IntArgument(230),
+        new StringArgument("c"), new StringArgument("d")));
+
+    assertArrayEquals(expected.getImage("d"), model.getImage("d"));
+    // b and c were never written, and the commands were not looked up one by one.
+    assertEquals(1, model.getCacheStats().getEntries().size());
+    assertTrue(model.getCacheStats().toString().contains("Remembered results: 0 hits, 0 misses"));
+    assertEquals(5, out.toString().split("STATUS: DONE", -1).length - 1);
+  }
+
+  /**
+   * runs a script through a CLI on a new model.
+   *
+   * @param script  the script.
+   * @param options the options of the run command.
+   * @param model   the model.
+   * @return the output of the CLI.
+   */
+  private static String runScript(File script, String options, IModel model) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    CLIAdapter cli = new CLIAdapter(
+        new ByteArrayInputStream(("run " + script.getPath() + options + "\n").getBytes()),
+        new PrintStream(out));
+    new Controller(model, cli).run();
+    return out.toString();
+  }
+
+  /**
+   * test that independent branches of a script run concurrently with the same output, errors and
+   * images as one by one.
+   */
+  @Test
+  public void testRunSchedulesIndependentSteps() throws Exception {
+    File dir = Files.createTempDirectory("script").toFile();
+    File script = new File(dir, "script.txt");
+    Files.write(script.toPath(), List.of(
+        "load " + testFile.getPath() + " a",
+        "load " + testFile.getPath() + " x",
+        "brighten 10 a b",
+        "blur x y",
+        "sepia b c",
+        "blur missing m",
+        "horizontal-flip y z",
+        "cache-stats",
+        "vertical-flip c d",
+        "save " + new File(dir, "d.png").getPath() + " d",
+        "save " + new File(dir, "z.png").getPath() + " z"));
+    Model sequential = new Model();
+    String expected = runScript(script, " --jobs 1", sequential);
+    String concurrent = runScript(script, " --jobs 4", model);
+
+    assertEquals(expected, concurrent);
+    assertTrue(concurrent.contains("ERROR"));
+    assertArrayEquals(sequential.getImage("d"), model.getImage("d"));
+    assertArrayEquals(sequential.getImage("z"), model.getImage("z"));
+  }
+
+  /**
+   * test that dropping an alias between two lines reading it runs after the first and before the
+   * second, also when the steps run concurrently.
+   */
+  @Test
+  public void testRunOrdersDropBetweenReaders() throws Exception {
+    File dir = Files.createTempDirectory("script").toFile();
+    File script = new File(dir, "script.txt");
+    Files.write(script.toPath(), List.of(
+        "brighten 10 x y",
+        "cache-drop x",
+        "brighten 10 x z",
+        "save " + new File(dir, "y.png").getPath() + " y"));
+    Model sequential = new Model();
+    new Controller(sequential, mockView).loadImage(testFile, "x");
+    String expected = runScript(script, " --jobs 1", sequential);
+    for (int round = 0; round < 5; round++) {
+      Model concurrent = new Model();
+      new Controller(concurrent, mockView).loadImage(testFile, "x");
+      assertEquals(expected, runScript(script, " --jobs 4", concurrent));
+      assertArrayEquals(sequential.getImage("y"), concurrent.getImage("y"));
+      for (CacheStats.Entry entry : concurrent.getCacheStats().getEntries()) {
+        assertFalse("z".equals(entry.getName()));
+      }
+    }
+    assertTrue(expected.contains("ERROR"));
+  }
+
+  /**
+   * test that a run command with an invalid number of jobs is rejected without running the script.
+   */
+  @Test
+  public void testRunRejectsInvalidJobs() throws Exception {
+    File dir = Files.createTempDirectory("script").toFile();
+    File script = new File(dir, "script.txt");
+    Files.write(script.toPath(), List.of("load " + testFile.getPath() + " a"));
+    for (String options : new String[]{" --jobs x", " --jobs 0", " --jobs -2", " --jobs"}) {
+      Model fresh = new Model();
+      String output = runScript(script, options, fresh);
+      assertTrue(output.contains("Incorrect use of run command"));
+      assertTrue(fresh.getCacheStats().getEntries().isEmpty());
+    }
+  }
+
   /**
    * test exit application.
    */
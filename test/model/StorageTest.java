@@ -0,0 +1,197 @@
+package model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for the plane layouts of the storages and the tiles images are walked in.
+ */
+public class StorageTest {
+
+  /**
+   * sizes that are smaller than, equal to and not multiples of a tile.
+   */
+  private static final int[][] SIZES = {{1, 1}, {256, 256}, {300, 517}, {513, 255}};
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final Path scratchDirectory = Storage.getScratchDirectory();
+
+  @After
+  public void restore() {
+    Storage.setScratchDirectory(scratchDirectory);
+  }
+
+  /**
+   * the sample written at a pixel.
+   *
+   * @param row the row of the pixel.
+   * @param col the column of the pixel.
+   * @return the sample.
+   */
+  private static int sample(int row, int col) {
+    return (row * 31 + col * 7) & 0xFF;
+  }
+
+  /**
+   * writes every sample of a plane and checks it reads them back, by position and by index.
+   *
+   * @param plane the empty plane.
+   */
+  private static void assertRoundTrip(WritablePlane plane) {
+    int height = plane.getHeight();
+    int width = plane.getWidth();
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        assertEquals(0, plane.get(i, j));
+        if (j % 2 == 0) {
+          plane.set(i, j, sample(i, j));
+        }
+        else {
+          plane.set(i * width + j, sample(i, j));
+        }
+      }
+    }
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        assertEquals(sample(i, j), plane.get(i, j));
+        assertEquals(sample(i, j), plane.get(i * width + j));
+      }
+    }
+  }
+
+  @Test
+  public void tiledPlaneRoundTrip() {
+    for (int[] size : SIZES) {
+      TiledPlane plane = new TiledPlane(size[0], size[1]);
+      assertEquals(Storage.TILED, plane.getStorage());
+      assertEquals((long) size[0] * size[1], plane.getSizeInBytes());
+      assertRoundTrip(plane);
+    }
+  }
+
+  @Test
+  public void tiledImageRoundTrip() {
+    int[][][] pixels = new int[300][517][3];
+    for (int i = 0; i < 300; i++) {
+      for (int j = 0; j < 517; j++) {
+        pixels[i][j] = new int[]{sample(i, j), sample(j, i), (i + j) & 0xFF};
+      }
+    }
+    Image tiled = new Image(pixels, Storage.TILED);
+    assertEquals(Storage.TILED, tiled.getStorage());
+    assertArrayEquals(pixels, tiled.getImageArray());
+    assertArrayEquals(pixels, tiled.toStorage(Storage.HEAP).getImageArray());
+    assertArrayEquals(pixels, new Image(pixels).toStorage(Storage.TILED).getImageArray());
+  }
+
+  @Test
+  public void gridCoversEdgeTilesOnce() {
+    for (int[] size : SIZES) {
+      int height = size[0];
+      int width = size[1];
+      int[][] covered = new int[height][width];
+      int tiles = 0;
+      for (Tile tile : Tile.grid(height, width)) {
+        assertEquals(tile.getRow() + tile.getHeight(), tile.getEndRow());
+        assertEquals(tile.getCol() + tile.getWidth(), tile.getEndCol());
+        assertEquals(Math.min(Tile.SIZE, height - tile.getRow()), tile.getHeight());
+        assertEquals(Math.min(Tile.SIZE, width - tile.getCol()), tile.getWidth());
+        for (int i = tile.getRow(); i < tile.getEndRow(); i++) {
+          for (int j = tile.getCol(); j < tile.getEndCol(); j++) {
+            covered[i][j]++;
+          }
+        }
+        tiles++;
+      }
+      int across = (width + Tile.SIZE - 1) / Tile.SIZE;
+      int down = (height + Tile.SIZE - 1) / Tile.SIZE;
+      assertEquals(across * down, tiles);
+      for (int[] row : covered) {
+        for (int count : row) {
+          assertEquals(1, count);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void gridOfTheRightAndBottomEdges() {
+    Tile last = null;
+    for (Tile tile : Tile.grid(300, 517)) {
+      last = tile;
+    }
+    assertEquals(256, last.getRow());
+    assertEquals(512, last.getCol());
+    assertEquals(44, last.getHeight());
+    assertEquals(5, last.getWidth());
+    assertFalse(Tile.grid(0, 5).iterator().hasNext());
+    assertFalse(Tile.grid(5, 0).iterator().hasNext());
+  }
+
+  @Test(expected = NoSuchElementException.class)
+  public void gridEnds() {
+    Iterator<Tile> tiles = Tile.grid(10, 10).iterator();
+    assertTrue(tiles.hasNext());
+    tiles.next();
+    tiles.next();
+  }
+
+  @Test
+  public void mappedPlaneRoundTrip() {
+    Storage.setScratchDirectory(folder.getRoot().toPath());
+    for (int[] size : SIZES) {
+      MappedPlane plane = new MappedPlane(size[0], size[1]);
+      assertEquals(Storage.MAPPED, plane.getStorage());
+      // the pages belong to the page cache, not to the cache budget.
+      assertEquals(0, plane.getSizeInBytes());
+      assertRoundTrip(plane);
+    }
+  }
+
+  @Test
+  public void mappedImageRoundTrip() {
+    Storage.setScratchDirectory(folder.getRoot().toPath());
+    int[][][] pixels = new int[300][517][3];
+    for (int i = 0; i < 300; i++) {
+      for (int j = 0; j < 517; j++) {
+        pixels[i][j] = new int[]{sample(i, j), sample(j, i), (i + j) & 0xFF};
+      }
+    }
+    Image mapped = new Image(pixels, Storage.MAPPED);
+    assertEquals(Storage.MAPPED, mapped.getStorage());
+    assertArrayEquals(pixels, mapped.getImageArray());
+    assertArrayEquals(pixels, mapped.toStorage(Storage.HEAP).getImageArray());
+  }
+
+  @Test
+  public void mappedScratchFileIsDeletedOnceMapped() {
+    File scratch = folder.getRoot();
+    Storage.setScratchDirectory(scratch.toPath());
+    MappedPlane plane = new MappedPlane(100, 100);
+    plane.set(99, 99, 42);
+    assertEquals(0, scratch.list().length);
+    // the mapping outlives the file.
+    assertEquals(42, plane.get(99, 99));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void mappedPlaneFailsWithoutScratchDirectory() throws Exception {
+    File scratch = folder.newFolder("gone");
+    Storage.setScratchDirectory(scratch.toPath());
+    assertTrue(scratch.delete());
+    new MappedPlane(10, 10);
+  }
+}
@@ -0,0 +1,67 @@
+package model.command;
+
+import java.util.Random;
+import model.Model;
+import model.RowBands;
+import utils.arguments.ArgumentWrapper;
+import utils.arguments.StringArgument;
+
+/**
+ * A benchmark of the parallel convolution of {@link Filter}, running {@code blur} on the same
+ * random image with 1, 2, 4, ... threads up to the number of processors. It prints the throughput
+ * of each parallelism and its speedup over one thread.
+ * <br>
+ * Run with an optional width and height (default 4000x3000):
+ * <pre>
+ *   java -cp build model.command.FilterBenchmark 4000 3000
+ * </pre>
+ */
+public class FilterBenchmark {
+
+  private static final int ROUNDS = 5;
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args optionally the width and height of the image.
+   */
+  public static void main(String[] args) {
+    int width = (args.length > 0) ? Integer.parseInt(args[0]) : 4000;
+    int height = (args.length > 1) ? Integer.parseInt(args[1]) : 3000;
+    int[][][] pixels = new int[height][width][3];
+    Random random = new Random(42);
+    for (int[][] row : pixels) {
+      for (int[] pixel : row) {
+        pixel[0] = random.nextInt(256);
+        pixel[1] = random.nextInt(256);
+        pixel[2] = random.nextInt(256);
+      }
+    }
+
+    int processors = Runtime.getRuntime().availableProcessors();
+    double sequential = 0;
+    for (int threads = 1; threads <= processors; threads = nextParallelism(threads, processors)) {
+      RowBands.setParallelism(threads);
+      long best = Long.MAX_VALUE;
+      for (int round = 0; round < ROUNDS; round++) {
+        // A new model each round, so the blur is not recalled from the results of the last one.
+        Model model = new Model();
+        model.setImage(pixels, "image");
+        long start = System.nanoTime();
+        model.execute("blur", new ArgumentWrapper(new StringArgument("image"),
+                                                  new StringArgument("blurred")));
+        best = Math.min(best, System.nanoTime() - start);
+      }
+      double throughput = (double) width * height * 1e3 / best;
+      if (threads == 1) {
+        sequential = throughput;
+      }
+      System.out.printf("%3d threads: %7.1f Mpx/s, speedup %.2f%n",
+                        threads, throughput, throughput / sequential);
+    }
+  }
+
+  private static int nextParallelism(int threads, int processors) {
+    return (threads < processors && threads * 2 > processors) ? processors : threads * 2;
+  }
+}
@@ -0,0 +1,87 @@
+package model.command;
+
+import java.util.Random;
+
+/**
+ * A micro benchmark comparing the allocation-free {@link PixelTransformer} contract with the
+ * previous contract that returned a new {@code int[3]} for every pixel. Both run the sepia matrix
+ * of {@link Sepia} over the same random pixels.
+ * <br>
+ * Run with an optional pixel count (default 12 million):
+ * <pre>
+ *   java -cp build model.command.PixelTransformerBenchmark 12000000
+ * </pre>
+ */
+public class PixelTransformerBenchmark {
+
+  private static final double[][] SEPIA = {
+      {0.393, 0.769, 0.189},
+      {0.349, 0.686, 0.168},
+      {0.272, 0.534, 0.131}};
+  private static final int ROUNDS = 5;
+
+  /**
+   * The previous contract, which allocates the transformed pixel.
+   */
+  private interface AllocatingTransformer {
+
+    int[] transformPixel(int r, int g, int b);
+  }
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args optionally the number of pixels.
+   */
+  public static void main(String[] args) {
+    int pixels = (args.length > 0) ? Integer.parseInt(args[0]) : 12_000_000;
+    byte[] red = new byte[pixels];
+    byte[] green = new byte[pixels];
+    byte[] blue = new byte[pixels];
+    Random random = new Random(42);
+    random.nextBytes(red);
+    random.nextBytes(green);
+    random.nextBytes(blue);
+
+    AllocatingTransformer allocating = (r, g, b) -> {
+      int[] result = new int[3];
+      for (int i = 0; i < 3; i++) {
+        result[i] = clamp(SEPIA[i][0] * r + SEPIA[i][1] * g + SEPIA[i][2] * b);
+      }
+      return result;
+    };
+    PixelTransformer primitive = (r, g, b, out) -> {
+      for (int i = 0; i < 3; i++) {
+        out[i] = clamp(SEPIA[i][0] * r + SEPIA[i][1] * g + SEPIA[i][2] * b);
+      }
+    };
+
+    for (int round = 0; round < ROUNDS; round++) {
+      long start = System.nanoTime();
+      long checksum = 0;
+      for (int p = 0; p < pixels; p++) {
+        int[] pixel = allocating.transformPixel(red[p] & 0xFF, green[p] & 0xFF, blue[p] & 0xFF);
+        checksum += pixel[0] + pixel[1] + pixel[2];
+      }
+      long allocatingTime = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      int[] out = new int[3];
+      for (int p = 0; p < pixels; p++) {
+        primitive.transformPixel(red[p] & 0xFF, green[p] & 0xFF, blue[p] & 0xFF, out);
+        checksum -= out[0] + out[1] + out[2];
+      }
+      long primitiveTime = System.nanoTime() - start;
+
+      System.out.printf("round %d: allocating %.1f Mpx/s, primitive %.1f Mpx/s (checksum %d)%n",
+                        round,
+                        pixels * 1e3 / allocatingTime,
+                        pixels * 1e3 / primitiveTime,
+                        checksum);
+    }
+  }
+
+  private static int clamp(double value) {
+    return Math.min(255, Math.max(0, (int) Math.round(value)));
+  }
+}